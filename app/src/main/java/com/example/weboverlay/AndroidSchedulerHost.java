@@ -0,0 +1,91 @@
+package com.example.weboverlay;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * {@link TaskScheduler.Host} backed by a single AlarmManager wakeup and one
+ * partial wake lock. Windows run on a dedicated background thread so tasks
+ * may block on network I/O without touching the main thread.
+ */
+public class AndroidSchedulerHost implements TaskScheduler.Host {
+    private static final String TAG = "TaskScheduler";
+    private static final String ALARM_TAG = "WebOverlay:TaskScheduler";
+
+    private final AlarmManager alarmManager;
+    private final PowerManager.WakeLock wakeLock;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private TaskScheduler scheduler;
+
+    private final AlarmManager.OnAlarmListener alarmListener = () -> {
+        if (scheduler != null) {
+            scheduler.onWakeup();
+        }
+    };
+
+    public AndroidSchedulerHost(Context context) {
+        alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, ALARM_TAG);
+        wakeLock.setReferenceCounted(false);
+        thread = new HandlerThread("TaskScheduler");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public void attach(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void quit() {
+        alarmManager.cancel(alarmListener);
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        thread.quitSafely();
+    }
+
+    /** False once quit() has let the background thread finish. */
+    boolean isAlive() {
+        return thread.isAlive();
+    }
+
+    @Override
+    public long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void scheduleWakeup(long atMillis) {
+        alarmManager.setExact(AlarmManager.ELAPSED_REALTIME_WAKEUP, atMillis, ALARM_TAG,
+            alarmListener, handler);
+    }
+
+    @Override
+    public void cancelWakeup() {
+        alarmManager.cancel(alarmListener);
+    }
+
+    @Override
+    public void acquireWakeLock(long timeoutMs) {
+        wakeLock.acquire(timeoutMs);
+    }
+
+    @Override
+    public void releaseWakeLock() {
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+    }
+
+    @Override
+    public void onTaskError(String name, RuntimeException e) {
+        Log.e(TAG, "Scheduled task failed: " + name, e);
+    }
+}
@@ -10,6 +10,21 @@ public class Constants {
     public static final String XIBO_DISPLAY_KEY = "acdbda641289";
     public static final String XIBO_EMBED_URL = XIBO_CMS_URL + "/web/displays/embed/" + XIBO_DISPLAY_KEY;
     
+    // XMR Push Channel
+    public static final String XIBO_XMR_URL = "ws://192.168.1.12:9505";
+    public static final long XMR_HEARTBEAT_SECONDS = 30;
+    public static final long XMR_RECONNECT_MIN_MS = 1000;
+    
+    // Background Work (interval / allowed slip, so tasks can share wake windows)
+    public static final long DIAGNOSTICS_SAMPLE_INTERVAL_MS = 15 * 60 * 1000L;
+    public static final long DIAGNOSTICS_SAMPLE_FLEX_MS = 5 * 60 * 1000L;
+    public static final long STATS_LOG_INTERVAL_MS = 30 * 60 * 1000L;
+    public static final long STATS_LOG_FLEX_MS = 15 * 60 * 1000L;
+    
+    // HDMI Frame Analysis (downsampled stream, independent of capture resolution)
+    public static final int ANALYSIS_WIDTH = 320;
+    public static final int ANALYSIS_HEIGHT = 180;
+    
     // Service Configuration
     public static final String CHANNEL_ID_OVERLAY = "overlay_service_channel";
     public static final int NOTIFICATION_ID_OVERLAY = 1002;
@@ -19,5 +34,7 @@ public class Constants {
         public static final String OVERLAY_WIDTH = "overlay_width";
         public static final String OVERLAY_HEIGHT = "overlay_height";
         public static final String OVERLAY_TRANSPARENT = "overlay_transparent";
+        public static final String HDMI_CAMERA_ID = "hdmi_camera_id";
+        public static final String HDMI_FRAME_ANALYSIS = "hdmi_frame_analysis";
     }
 }
@@ -0,0 +1,316 @@
+package com.example.weboverlay;
+
+import android.Manifest;
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.ImageFormat;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.Collections;
+
+/**
+ * Low-resolution analysis stream for the HDMI input.
+ * Pulls the smallest supported YUV_420_888 stream through a two-image
+ * ImageReader on its own thread and feeds the Y plane to a
+ * {@link LumaAnalyzer}. Detected events, with their frame-to-detection
+ * latency, go to the callback. When the capture app takes the input back
+ * the analyzer reports {@link #EVENT_UNAVAILABLE} and keeps trying to
+ * reopen it with backoff.
+ */
+public class HdmiFrameAnalyzer implements LumaAnalyzer.Listener {
+    private static final String TAG = "HdmiFrameAnalyzer";
+    private static final long REOPEN_MIN_MS = 1000;
+    private static final long REOPEN_MAX_MS = 60_000;
+
+    /** Active while the HDMI input can't be analyzed; latency is always 0. */
+    public static final String EVENT_UNAVAILABLE = "unavailable";
+
+    public interface Callback {
+        void onHdmiEvent(String type, boolean active, long latencyMs);
+    }
+
+    private final Context context;
+    private final Callback callback;
+    private final LumaAnalyzer lumaAnalyzer = new LumaAnalyzer(this);
+    private final LatencyStats detectionLatency = new LatencyStats(256);
+
+    private HandlerThread thread;
+    private Handler handler;
+    private CameraManager cameraManager;
+    private String cameraId;
+    private long reopenDelayMs = REOPEN_MIN_MS;
+    private final Runnable reopenRunnable = this::openCamera;
+    private ImageReader imageReader;
+    private CameraDevice cameraDevice;
+    private CameraCaptureSession session;
+    private boolean realtimeTimestamps = false;
+    private long frameArrivalNanos;
+    // Set by stop(); camera callbacks that arrive afterwards release what they get
+    private volatile boolean closed = false;
+
+    public HdmiFrameAnalyzer(Context context, Callback callback) {
+        this.context = context.getApplicationContext();
+        this.callback = callback;
+    }
+
+    @SuppressLint("MissingPermission")
+    public void start(String cameraId) {
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.CAMERA)
+                != PackageManager.PERMISSION_GRANTED) {
+            Log.w(TAG, "Camera permission not granted, frame analysis disabled");
+            return;
+        }
+
+        cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        try {
+            if (cameraId == null) {
+                cameraId = findDefaultCamera(cameraManager);
+                if (cameraId == null) {
+                    Log.w(TAG, "No cameras available for frame analysis");
+                    return;
+                }
+            }
+            CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
+            Integer source = characteristics.get(CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE);
+            realtimeTimestamps = source != null
+                && source == CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE_REALTIME;
+
+            StreamConfigurationMap map =
+                characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+            Size size = map == null ? null : chooseAnalysisSize(
+                map.getOutputSizes(ImageFormat.YUV_420_888),
+                Constants.ANALYSIS_WIDTH, Constants.ANALYSIS_HEIGHT);
+            if (size == null) {
+                Log.w(TAG, "Camera " + cameraId + " has no YUV output, frame analysis disabled");
+                return;
+            }
+            Log.d(TAG, "Analyzing camera " + cameraId + " at " + size);
+
+            this.cameraId = cameraId;
+            thread = new HandlerThread("FrameAnalysis");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+
+            imageReader = ImageReader.newInstance(
+                size.getWidth(), size.getHeight(), ImageFormat.YUV_420_888, 2);
+            imageReader.setOnImageAvailableListener(this::onImageAvailable, handler);
+
+            handler.post(this::openCamera);
+        } catch (CameraAccessException e) {
+            Log.e(TAG, "Failed to open camera for frame analysis", e);
+            stop();
+        }
+    }
+
+    /** Prefer an external (HDMI bridge) camera when none is configured. */
+    private static String findDefaultCamera(CameraManager cameraManager)
+            throws CameraAccessException {
+        String[] ids = cameraManager.getCameraIdList();
+        for (String id : ids) {
+            Integer facing = cameraManager.getCameraCharacteristics(id)
+                .get(CameraCharacteristics.LENS_FACING);
+            if (facing != null && facing == CameraCharacteristics.LENS_FACING_EXTERNAL) {
+                return id;
+            }
+        }
+        return ids.length > 0 ? ids[0] : null;
+    }
+
+    /**
+     * Smallest supported size covering the target, so analysis cost stays
+     * close to the target; the largest size if none covers it.
+     */
+    static Size chooseAnalysisSize(Size[] sizes, int targetWidth, int targetHeight) {
+        if (sizes == null || sizes.length == 0) return null;
+        Size best = null;
+        Size largest = sizes[0];
+        for (Size size : sizes) {
+            long area = (long) size.getWidth() * size.getHeight();
+            if (area > (long) largest.getWidth() * largest.getHeight()) {
+                largest = size;
+            }
+            if (size.getWidth() >= targetWidth && size.getHeight() >= targetHeight
+                    && (best == null || area < (long) best.getWidth() * best.getHeight())) {
+                best = size;
+            }
+        }
+        return best != null ? best : largest;
+    }
+
+    /** Runs on the analysis thread. */
+    @SuppressLint("MissingPermission")
+    private void openCamera() {
+        if (closed) return;
+        try {
+            cameraManager.openCamera(cameraId, stateCallback, handler);
+        } catch (CameraAccessException | SecurityException e) {
+            Log.w(TAG, "Failed to open camera " + cameraId + ": " + e.getMessage());
+            scheduleReopen();
+        }
+    }
+
+    /** Runs on the analysis thread after the camera was lost or failed to open. */
+    private void scheduleReopen() {
+        if (closed) return;
+        Log.d(TAG, "Reopening camera " + cameraId + " in " + reopenDelayMs + "ms");
+        handler.removeCallbacks(reopenRunnable);
+        handler.postDelayed(reopenRunnable, reopenDelayMs);
+        reopenDelayMs = Math.min(reopenDelayMs * 2, REOPEN_MAX_MS);
+    }
+
+    /** Camera lost to another client or failed; close it and report the gap. */
+    private void onCameraLost(CameraDevice camera) {
+        camera.close();
+        cameraDevice = null;
+        session = null;
+        if (closed) return;
+        callback.onHdmiEvent(EVENT_UNAVAILABLE, true, 0);
+        scheduleReopen();
+    }
+
+    /**
+     * Stop the analysis stream. Camera objects are only touched on the
+     * analysis thread, so the teardown is posted there; the analyzer
+     * cannot be restarted afterwards.
+     */
+    public void stop() {
+        if (closed) return;
+        closed = true;
+        if (handler == null) {
+            // Never got as far as starting the analysis thread
+            releaseCamera();
+            return;
+        }
+        handler.post(() -> {
+            handler.removeCallbacks(reopenRunnable);
+            releaseCamera();
+            thread.quitSafely();
+        });
+    }
+
+    private void releaseCamera() {
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+        if (cameraDevice != null) {
+            cameraDevice.close();
+            cameraDevice = null;
+        }
+        if (imageReader != null) {
+            imageReader.close();
+            imageReader = null;
+        }
+    }
+
+    public LatencyStats getDetectionLatency() {
+        return detectionLatency;
+    }
+
+    private final CameraDevice.StateCallback stateCallback = new CameraDevice.StateCallback() {
+        @Override
+        public void onOpened(CameraDevice camera) {
+            if (closed) {
+                camera.close();
+                return;
+            }
+            cameraDevice = camera;
+            createSession();
+        }
+
+        @Override
+        public void onDisconnected(CameraDevice camera) {
+            // Typically the capture app taking the HDMI input back
+            Log.w(TAG, "Camera disconnected");
+            onCameraLost(camera);
+        }
+
+        @Override
+        public void onError(CameraDevice camera, int error) {
+            Log.e(TAG, "Camera error: " + error);
+            onCameraLost(camera);
+        }
+    };
+
+    private void createSession() {
+        if (cameraDevice == null || imageReader == null) return;
+        try {
+            cameraDevice.createCaptureSession(
+                Collections.singletonList(imageReader.getSurface()),
+                new CameraCaptureSession.StateCallback() {
+                    @Override
+                    public void onConfigured(CameraCaptureSession captureSession) {
+                        if (closed || cameraDevice == null || imageReader == null) {
+                            captureSession.close();
+                            return;
+                        }
+                        session = captureSession;
+                        try {
+                            CaptureRequest.Builder builder =
+                                cameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+                            builder.addTarget(imageReader.getSurface());
+                            session.setRepeatingRequest(builder.build(), null, handler);
+                            Log.d(TAG, "Frame analysis started");
+                            reopenDelayMs = REOPEN_MIN_MS;
+                            // Don't compare the first new frame against one from before the gap
+                            lumaAnalyzer.reset();
+                            callback.onHdmiEvent(EVENT_UNAVAILABLE, false, 0);
+                        } catch (CameraAccessException e) {
+                            Log.e(TAG, "Failed to start analysis stream", e);
+                        }
+                    }
+
+                    @Override
+                    public void onConfigureFailed(CameraCaptureSession captureSession) {
+                        Log.e(TAG, "Analysis session configuration failed");
+                        if (cameraDevice != null) {
+                            onCameraLost(cameraDevice);
+                        }
+                    }
+                },
+                handler
+            );
+        } catch (CameraAccessException e) {
+            Log.e(TAG, "Failed to create analysis session", e);
+        }
+    }
+
+    private void onImageAvailable(ImageReader reader) {
+        Image image = reader.acquireLatestImage();
+        if (image == null) return;
+        try {
+            frameArrivalNanos = SystemClock.elapsedRealtimeNanos();
+            Image.Plane luma = image.getPlanes()[0];
+            lumaAnalyzer.analyze(luma.getBuffer(), image.getWidth(), image.getHeight(),
+                luma.getRowStride(), image.getTimestamp());
+        } finally {
+            image.close();
+        }
+    }
+
+    @Override
+    public void onFrameEvent(String type, boolean active, long frameTimestampNanos) {
+        // Sensor timestamps are only comparable with our clock when the
+        // source is REALTIME; otherwise measure from frame arrival.
+        long start = realtimeTimestamps ? frameTimestampNanos : frameArrivalNanos;
+        long latencyMs = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000L;
+        detectionLatency.record(latencyMs);
+        callback.onHdmiEvent(type, active, latencyMs);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.weboverlay;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring buffer of samples with percentile queries.
+ * Old samples are overwritten once the buffer is full, so memory stays
+ * bounded no matter how long the service runs.
+ */
+public class LatencyStats {
+    private final long[] samples;
+    private int count = 0;
+    private int next = 0;
+
+    public LatencyStats(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+        next = 0;
+    }
+
+    /**
+     * Nearest-rank percentile, p in [0, 100]. Returns -1 when empty.
+     */
+    public synchronized long percentile(double p) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+    }
+
+    /**
+     * One-line "p50/p90/p99 (n)" summary used in diagnostics reports.
+     */
+    public String summary(String unit) {
+        if (count() == 0) {
+            return "no samples";
+        }
+        return "p50 " + percentile(50) + unit
+            + " / p90 " + percentile(90) + unit
+            + " / p99 " + percentile(99) + unit
+            + " (n=" + count() + ")";
+    }
+}
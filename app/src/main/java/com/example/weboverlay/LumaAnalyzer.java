@@ -0,0 +1,140 @@
+package com.example.weboverlay;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free analysis of downsampled luma (Y plane) frames.
+ * Computes a 256-bin histogram and the mean absolute difference against the
+ * previous frame, and turns them into black-frame, scene-cut and
+ * static-slate events. All buffers are sized on the first frame and reused.
+ */
+public class LumaAnalyzer {
+    public static final String EVENT_BLACK = "black";
+    public static final String EVENT_SCENE_CUT = "sceneCut";
+    public static final String EVENT_STATIC = "static";
+
+    private static final int BLACK_LUMA = 24;
+    private static final float BLACK_FRACTION = 0.98f;
+    private static final float SCENE_CUT_DIFF = 40f;
+    private static final float STATIC_DIFF = 1.5f;
+    private static final int STATIC_FRAMES = 60;
+
+    public interface Listener {
+        /**
+         * @param active true when the condition starts, false when it ends;
+         *               scene cuts are always reported as active
+         */
+        void onFrameEvent(String type, boolean active, long frameTimestampNanos);
+    }
+
+    private final Listener listener;
+    private final int[] histogram = new int[256];
+    private byte[] row = new byte[0];
+    private byte[] previous = new byte[0];
+    private boolean hasPrevious = false;
+
+    private float meanLuma;
+    private float meanDiff;
+    private boolean black = false;
+    private boolean frozen = false;
+    private int staticRun = 0;
+
+    public LumaAnalyzer(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Analyze one Y plane. The buffer's position is consumed; pixel stride
+     * is assumed to be 1, which Camera2 guarantees for the Y plane of
+     * YUV_420_888.
+     */
+    public void analyze(ByteBuffer yPlane, int width, int height, int rowStride,
+                        long timestampNanos) {
+        int pixels = width * height;
+        if (previous.length != pixels) {
+            previous = new byte[pixels];
+            row = new byte[width];
+            hasPrevious = false;
+        }
+
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = 0;
+        }
+        long lumaSum = 0;
+        long diffSum = 0;
+        int dark = 0;
+
+        for (int y = 0; y < height; y++) {
+            yPlane.position(y * rowStride);
+            yPlane.get(row, 0, width);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int luma = row[x] & 0xFF;
+                histogram[luma]++;
+                lumaSum += luma;
+                if (luma < BLACK_LUMA) {
+                    dark++;
+                }
+                int index = offset + x;
+                int diff = luma - (previous[index] & 0xFF);
+                diffSum += diff < 0 ? -diff : diff;
+                previous[index] = row[x];
+            }
+        }
+
+        meanLuma = (float) lumaSum / pixels;
+        meanDiff = hasPrevious ? (float) diffSum / pixels : 0f;
+
+        boolean isBlack = dark >= pixels * BLACK_FRACTION;
+        boolean wasBlack = black;
+        if (isBlack != black) {
+            black = isBlack;
+            listener.onFrameEvent(EVENT_BLACK, black, timestampNanos);
+        }
+
+        if (hasPrevious) {
+            // A cut into or out of black is already reported as a black event
+            if (meanDiff >= SCENE_CUT_DIFF && !isBlack && !wasBlack) {
+                listener.onFrameEvent(EVENT_SCENE_CUT, true, timestampNanos);
+            }
+
+            staticRun = meanDiff <= STATIC_DIFF ? staticRun + 1 : 0;
+            boolean isStatic = staticRun >= STATIC_FRAMES && !isBlack;
+            if (isStatic != frozen) {
+                frozen = isStatic;
+                listener.onFrameEvent(EVENT_STATIC, frozen, timestampNanos);
+            }
+        }
+        hasPrevious = true;
+    }
+
+    /**
+     * Forget the previous frame, e.g. after a gap in the stream, so the
+     * next frame isn't diffed against stale content. Black and static
+     * states are kept and re-evaluated from the next frames.
+     */
+    public void reset() {
+        hasPrevious = false;
+        staticRun = 0;
+    }
+
+    public int[] getHistogram() {
+        return histogram;
+    }
+
+    public float getMeanLuma() {
+        return meanLuma;
+    }
+
+    public float getMeanDiff() {
+        return meanDiff;
+    }
+
+    public boolean isBlack() {
+        return black;
+    }
+
+    public boolean isStatic() {
+        return frozen;
+    }
+}
@@ -1,17 +1,21 @@
 package com.example.weboverlay;
 
+import android.Manifest;
 import android.app.Activity;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.Settings;
 import android.util.Log;
 import android.widget.Button;
 import android.widget.Toast;
+import androidx.preference.PreferenceManager;
 
 public class MainActivity extends Activity {
     private static final String TAG = Constants.TAG_MAIN;
     private static final int OVERLAY_PERMISSION_REQUEST_CODE = 1;
+    private static final int CAMERA_PERMISSION_REQUEST_CODE = 2;
     
     private Button startButton;
     private Button stopButton;
@@ -31,6 +35,8 @@ public class MainActivity extends Activity {
         
         startButton.setOnClickListener(v -> checkPermissionAndStartOverlay());
         stopButton.setOnClickListener(v -> stopOverlay());
+        findViewById(R.id.open_settings).setOnClickListener(
+            v -> startActivity(new Intent(this, SettingsActivity.class)));
         
         updateButtonStates();
     }
@@ -59,6 +65,37 @@ public class MainActivity extends Activity {
     }
     
     private void startOverlay() {
+        // The service only opens the camera at startup, so ask first and
+        // start it from onRequestPermissionsResult
+        boolean analysisEnabled = PreferenceManager.getDefaultSharedPreferences(this)
+            .getBoolean(Constants.Prefs.HDMI_FRAME_ANALYSIS, false);
+        if (analysisEnabled && checkSelfPermission(Manifest.permission.CAMERA)
+                != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[]{Manifest.permission.CAMERA}, CAMERA_PERMISSION_REQUEST_CODE);
+            return;
+        }
+        
+        launchService();
+    }
+    
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == CAMERA_PERMISSION_REQUEST_CODE) {
+            boolean granted = grantResults.length > 0
+                && grantResults[0] == PackageManager.PERMISSION_GRANTED;
+            if (!granted) {
+                Toast.makeText(this, "Camera permission denied, HDMI analysis disabled",
+                    Toast.LENGTH_SHORT).show();
+            } else if (OverlayService.isRunning) {
+                // Restart so the running service picks up camera access
+                stopService(new Intent(this, OverlayService.class));
+            }
+            launchService();
+        }
+    }
+    
+    private void launchService() {
         Intent intent = new Intent(this, OverlayService.class);
         startForegroundService(intent);
         updateButtonStates();
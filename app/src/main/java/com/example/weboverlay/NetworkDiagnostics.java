@@ -0,0 +1,137 @@
+package com.example.weboverlay;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Connection timings to the CMS, split by phase.
+ * The {@link #background()} instance is fed by the service's own HTTP
+ * traffic during normal operation; a fresh instance is used for the
+ * on-demand probe behind the "Test connection" button.
+ */
+public class NetworkDiagnostics {
+    private static final int SAMPLE_CAPACITY = 256;
+    private static final NetworkDiagnostics BACKGROUND = new NetworkDiagnostics();
+
+    public final LatencyStats dns = new LatencyStats(SAMPLE_CAPACITY);
+    public final LatencyStats connect = new LatencyStats(SAMPLE_CAPACITY);
+    public final LatencyStats tls = new LatencyStats(SAMPLE_CAPACITY);
+    public final LatencyStats ttfb = new LatencyStats(SAMPLE_CAPACITY);
+    public final LatencyStats throughput = new LatencyStats(SAMPLE_CAPACITY);
+    public final LatencyStats pageLoad = new LatencyStats(SAMPLE_CAPACITY);
+    public final LatencyStats sustained = new LatencyStats(SAMPLE_CAPACITY);
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public static NetworkDiagnostics background() {
+        return BACKGROUND;
+    }
+
+    public void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    public int getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Run the active probe against the CMS. Blocks for roughly
+     * {@code downloadMillis} plus the latency probes, so it must not be
+     * called on the main thread.
+     *
+     * @param requests number of cold requests used for the phase timings
+     * @param downloadMillis how long to keep downloading for the throughput probe
+     */
+    public void runProbe(String url, int requests, long downloadMillis) {
+        // No pooling, so every request pays DNS, connect and TLS again
+        OkHttpClient coldClient = new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(0, 1, TimeUnit.MILLISECONDS))
+            .eventListenerFactory(NetworkTimingListener.factory(this))
+            .build();
+        for (int i = 0; i < requests; i++) {
+            fetch(coldClient, url);
+        }
+        if (downloadMillis <= 0) {
+            return;
+        }
+
+        OkHttpClient warmClient = new OkHttpClient.Builder()
+            .eventListenerFactory(NetworkTimingListener.factory(this))
+            .build();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(downloadMillis);
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            long bytes = fetch(warmClient, url);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+            if (bytes < 0) {
+                break;
+            }
+            if (elapsedMs > 0) {
+                sustained.record(bytes / elapsedMs);
+            }
+        }
+        warmClient.connectionPool().evictAll();
+    }
+
+    /**
+     * Download the whole body and return its size, or -1 on failure.
+     * Transport failures are counted by the event listener; non-2xx
+     * responses are counted here and their bodies are not read, so an
+     * error page never shows up as a throughput sample.
+     */
+    private long fetch(OkHttpClient client, String url) {
+        Request request = new Request.Builder()
+            .url(url)
+            .header("Cache-Control", "no-cache")
+            .build();
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                recordFailure();
+                return -1;
+            }
+            ResponseBody body = response.body();
+            if (body == null) {
+                return 0;
+            }
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            InputStream in = body.byteStream();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+            }
+            return total;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    public String formatReport() {
+        StringBuilder sb = new StringBuilder();
+        appendLine(sb, "DNS", dns, "ms");
+        appendLine(sb, "Connect", connect, "ms");
+        appendLine(sb, "TLS", tls, "ms");
+        appendLine(sb, "TTFB", ttfb, "ms");
+        appendLine(sb, "Throughput", throughput, "kB/s");
+        if (sustained.count() > 0) {
+            appendLine(sb, "Sustained", sustained, "kB/s");
+        }
+        if (pageLoad.count() > 0) {
+            appendLine(sb, "Page load", pageLoad, "ms");
+        }
+        sb.append("Failures: ").append(getFailures());
+        return sb.toString();
+    }
+
+    private static void appendLine(StringBuilder sb, String label, LatencyStats stats, String unit) {
+        sb.append(label).append(": ").append(stats.summary(unit)).append('\n');
+    }
+}
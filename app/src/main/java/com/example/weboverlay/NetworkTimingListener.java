@@ -0,0 +1,110 @@
+package com.example.weboverlay;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+/**
+ * Per-call OkHttp listener that times each connection phase and records
+ * the result into a {@link NetworkDiagnostics} instance.
+ * Phases that a call skips (e.g. DNS and connect on a pooled connection)
+ * are simply not recorded.
+ */
+public class NetworkTimingListener extends EventListener {
+    private final NetworkDiagnostics diagnostics;
+
+    private long dnsStart;
+    private long connectStart;
+    private boolean connectRecorded;
+    private long secureConnectStart;
+    private long requestStart;
+    private long bodyStart;
+
+    public NetworkTimingListener(NetworkDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    public static EventListener.Factory factory(NetworkDiagnostics diagnostics) {
+        return call -> new NetworkTimingListener(diagnostics);
+    }
+
+    private static long now() {
+        return System.nanoTime();
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = now();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        diagnostics.dns.record(elapsedMs(dnsStart));
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = now();
+        connectRecorded = false;
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        // TCP is up once TLS starts; connectEnd would also include the handshake
+        diagnostics.connect.record(elapsedMs(connectStart));
+        connectRecorded = true;
+        secureConnectStart = now();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        diagnostics.tls.record(elapsedMs(secureConnectStart));
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                           Protocol protocol) {
+        if (!connectRecorded) {
+            diagnostics.connect.record(elapsedMs(connectStart));
+        }
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        requestStart = now();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        diagnostics.ttfb.record(elapsedMs(requestStart));
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        bodyStart = now();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        long elapsedMs = elapsedMs(bodyStart);
+        if (elapsedMs > 0 && byteCount > 0) {
+            diagnostics.throughput.record(byteCount / elapsedMs);
+        }
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        diagnostics.recordFailure();
+    }
+}
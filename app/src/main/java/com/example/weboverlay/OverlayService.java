@@ -7,9 +7,14 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Picture;
 import android.graphics.PixelFormat;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.LayoutInflater;
@@ -19,15 +24,44 @@ import android.widget.FrameLayout;
 import androidx.preference.PreferenceManager;
 import androidx.core.app.NotificationCompat;
 
-public class OverlayService extends Service {
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class OverlayService extends Service implements XmrListener.Callback {
     private static final String TAG = Constants.TAG_OVERLAY;
     public static boolean isRunning = false;
     
+    // Endpoints, overridable so tests can point the service at local stand-ins
+    static String contentUrl = Constants.XIBO_EMBED_URL;
+    static String xmrUrl = Constants.XIBO_XMR_URL;
+    
     private WindowManager windowManager;
     private FrameLayout overlayView;
     private WebView webView;
     private XiboWebClient xiboWebClient;
     private SharedPreferences prefs;
+    private XmrListener xmrListener;
+    private AndroidSchedulerHost schedulerHost;
+    private TaskScheduler scheduler;
+    private HdmiFrameAnalyzer frameAnalyzer;
+    
+    // Timestamps of the push command currently waiting for a screen update
+    private long pendingCommandCreatedAt = 0;
+    private long pendingCommandReceivedAt = 0;
+    // Receive-to-screen time of push commands whose content loaded
+    private final LatencyStats commandToScreen = new LatencyStats(64);
+    
+    // Start of the current onStartCommand -> first content load, 0 once reported.
+    // System.nanoTime, like the page load timing in XiboWebClient
+    private long startCommandNanos = 0;
+    private long webViewStartNanos = 0;
+    
+    // Startup phase durations in ms, -1 until measured
+    private long inflateMillis = -1;
+    private long attachMillis = -1;
+    private long webViewMillis = -1;
+    private long firstContentMillis = -1;
 
     @Override
     public void onCreate() {
@@ -35,6 +69,12 @@ public class OverlayService extends Service {
         Log.d(TAG, "Service onCreate");
         isRunning = true;
         prefs = PreferenceManager.getDefaultSharedPreferences(this);
+        SettingsActivity.migrateOverlaySize(prefs);
+        
+        schedulerHost = new AndroidSchedulerHost(this);
+        scheduler = new TaskScheduler(schedulerHost);
+        schedulerHost.attach(scheduler);
+        scheduleBackgroundWork();
     }
 
     @Override
@@ -44,6 +84,7 @@ public class OverlayService extends Service {
         startForeground(Constants.NOTIFICATION_ID_OVERLAY, buildNotification());
         
         if (windowManager == null) {
+            startCommandNanos = System.nanoTime();
             windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
             initOverlay();
         }
@@ -55,11 +96,35 @@ public class OverlayService extends Service {
     public void onDestroy() {
         Log.d(TAG, "Service onDestroy");
         isRunning = false;
-        if (overlayView != null && overlayView.isAttachedToWindow()) {
-            windowManager.removeView(overlayView);
+        if (xmrListener != null) {
+            xmrListener.stop();
+            xmrListener = null;
+        }
+        if (frameAnalyzer != null) {
+            frameAnalyzer.stop();
+            frameAnalyzer = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+            schedulerHost.quit();
+            scheduler = null;
+            schedulerHost = null;
+        }
+        if (overlayView != null) {
+            // Detach synchronously so the WebView is out of the window before it is destroyed
+            if (overlayView.isAttachedToWindow()) {
+                windowManager.removeViewImmediate(overlayView);
+            }
+            if (xiboWebClient != null) {
+                xiboWebClient.destroy();
+            } else if (webView != null) {
+                webView.destroy();
+            }
+            xiboWebClient = null;
             overlayView = null;
             webView = null;
         }
+        windowManager = null;
         super.onDestroy();
     }
 
@@ -69,9 +134,11 @@ public class OverlayService extends Service {
     }
 
     private void initOverlay() {
+        long phaseStart = System.nanoTime();
         LayoutInflater inflater = (LayoutInflater) getSystemService(LAYOUT_INFLATER_SERVICE);
         overlayView = (FrameLayout) inflater.inflate(R.layout.overlay_layout, null);
         webView = overlayView.findViewById(R.id.primary_webview);
+        inflateMillis = (System.nanoTime() - phaseStart) / 1_000_000L;
         
         int width = prefs.getInt(Constants.Prefs.OVERLAY_WIDTH, 200);
         int height = prefs.getInt(Constants.Prefs.OVERLAY_HEIGHT, 150);
@@ -92,15 +159,193 @@ public class OverlayService extends Service {
         params.y = 16;
         
         try {
+            phaseStart = System.nanoTime();
             windowManager.addView(overlayView, params);
-            xiboWebClient = new XiboWebClient(this, webView);
+            attachMillis = (System.nanoTime() - phaseStart) / 1_000_000L;
+            
+            // The webview phase runs until the first page finishes, see onContentLoaded
+            webViewStartNanos = System.nanoTime();
+            boolean frameAnalysis = prefs.getBoolean(Constants.Prefs.HDMI_FRAME_ANALYSIS, false);
+            xiboWebClient = new XiboWebClient(this, webView, contentUrl, frameAnalysis);
+            xiboWebClient.setOnContentLoadedListener(this::onContentLoaded);
             xiboWebClient.loadContent();
+            
+            xmrListener = new XmrListener(xmrUrl, this);
+            xmrListener.start();
+            
+            if (frameAnalysis) {
+                startFrameAnalysis();
+            }
             Log.d(TAG, "Overlay initialized successfully");
         } catch (Exception e) {
             Log.e(TAG, "Error initializing overlay", e);
         }
     }
 
+    /**
+     * Register deferrable periodic work with the shared scheduler.
+     * Flex windows are generous so these runs line up instead of each
+     * waking the device on its own timer.
+     */
+    private void scheduleBackgroundWork() {
+        // Tasks run on the scheduler thread and may outlive the service fields
+        final TaskScheduler taskScheduler = scheduler;
+        taskScheduler.scheduleRepeating("diagnostics_sample", TaskScheduler.PRIORITY_LOW,
+            Constants.DIAGNOSTICS_SAMPLE_INTERVAL_MS, Constants.DIAGNOSTICS_SAMPLE_FLEX_MS,
+            () -> NetworkDiagnostics.background().runProbe(contentUrl, 1, 0));
+        
+        taskScheduler.scheduleRepeating("stats_log", TaskScheduler.PRIORITY_LOW,
+            Constants.STATS_LOG_INTERVAL_MS, Constants.STATS_LOG_FLEX_MS,
+            () -> {
+                Log.i(TAG, "Network stats:\n" + NetworkDiagnostics.background().formatReport());
+                HdmiFrameAnalyzer analyzer = frameAnalyzer;
+                if (analyzer != null) {
+                    Log.i(TAG, "HDMI detection latency: "
+                        + analyzer.getDetectionLatency().summary("ms"));
+                }
+                if (commandToScreen.count() > 0) {
+                    Log.i(TAG, "XMR receive to screen: " + commandToScreen.summary("ms"));
+                }
+                Log.i(TAG, "Scheduler: " + taskScheduler.getWindowsRun() + " windows, "
+                    + taskScheduler.getTasksRun() + " tasks, "
+                    + taskScheduler.getWakeupsAvoided() + " wakeups avoided");
+            });
+    }
+
+    private void startFrameAnalysis() {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        frameAnalyzer = new HdmiFrameAnalyzer(this, (type, active, latencyMs) -> {
+            Log.d(TAG, "HDMI event: " + type + (active ? " start" : " end")
+                + " (detected in " + latencyMs + "ms)");
+            mainHandler.post(() -> {
+                if (xiboWebClient != null) {
+                    xiboWebClient.dispatchHdmiEvent(type, active, latencyMs);
+                }
+            });
+        });
+        frameAnalyzer.start(prefs.getString(Constants.Prefs.HDMI_CAMERA_ID, null));
+    }
+
+    @Override
+    public void onXmrCommand(XmrMessage message, long receivedAtMillis) {
+        Log.d(TAG, "XMR command: " + message.getAction());
+        switch (message.getAction()) {
+            case XmrMessage.ACTION_COLLECT_NOW:
+            case XmrMessage.ACTION_CHANGE_LAYOUT:
+                if (xiboWebClient == null) return;
+                if (message.getLayoutId() != null) {
+                    Log.d(TAG, "Layout change requested: " + message.getLayoutId());
+                }
+                pendingCommandCreatedAt = message.getCreatedAtMillis();
+                pendingCommandReceivedAt = receivedAtMillis;
+                xiboWebClient.loadContent();
+                break;
+                
+            case XmrMessage.ACTION_SCREENSHOT:
+                takeScreenshot();
+                break;
+                
+            default:
+                Log.d(TAG, "Unsupported XMR command: " + message.getAction());
+                break;
+        }
+    }
+
+    private void onContentLoaded(String url, boolean success) {
+        if (startCommandNanos != 0) {
+            long now = System.nanoTime();
+            webViewMillis = (now - webViewStartNanos) / 1_000_000L;
+            firstContentMillis = (now - startCommandNanos) / 1_000_000L;
+            Log.i(TAG, "Startup phases: inflate " + inflateMillis + "ms, attach " + attachMillis
+                + "ms, webview " + webViewMillis + "ms; first content after "
+                + firstContentMillis + "ms");
+            startCommandNanos = 0;
+        }
+        if (pendingCommandReceivedAt == 0) return;
+        
+        long now = System.currentTimeMillis();
+        long toScreen = now - pendingCommandReceivedAt;
+        if (success) {
+            commandToScreen.record(toScreen);
+        }
+        if (!success) {
+            Log.w(TAG, "XMR command failed: content did not load after " + toScreen + "ms");
+        } else if (pendingCommandCreatedAt > 0) {
+            Log.i(TAG, "XMR latency: " + (now - pendingCommandCreatedAt) + "ms command to screen ("
+                + (pendingCommandReceivedAt - pendingCommandCreatedAt) + "ms relay, "
+                + toScreen + "ms load)");
+        } else {
+            Log.i(TAG, "XMR latency: " + toScreen + "ms receive to screen");
+        }
+        pendingCommandCreatedAt = 0;
+        pendingCommandReceivedAt = 0;
+    }
+
+    @SuppressWarnings("deprecation")
+    private void takeScreenshot() {
+        if (webView == null || webView.getWidth() == 0 || webView.getHeight() == 0) {
+            Log.w(TAG, "Screenshot requested but overlay is not laid out");
+            return;
+        }
+        
+        // A software draw of the hardware-layered WebView comes out blank, so
+        // record its content on the main thread and rasterize it elsewhere
+        final Picture picture = webView.capturePicture();
+        final int width = webView.getWidth();
+        final int height = webView.getHeight();
+        final File file = new File(getCacheDir(), "screenshot.png");
+        
+        scheduler.schedule("screenshot", TaskScheduler.PRIORITY_HIGH, 0, 0, () -> {
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            picture.draw(new Canvas(bitmap));
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+                Log.d(TAG, "Screenshot saved to " + file.getAbsolutePath());
+            } catch (IOException e) {
+                Log.e(TAG, "Error saving screenshot", e);
+            } finally {
+                bitmap.recycle();
+            }
+        });
+    }
+
+    /** Inflating the overlay layout. */
+    long getInflateMillis() {
+        return inflateMillis;
+    }
+
+    /** Adding the overlay to the window manager. */
+    long getAttachMillis() {
+        return attachMillis;
+    }
+
+    /** WebView client setup until the first page finished loading. */
+    long getWebViewMillis() {
+        return webViewMillis;
+    }
+
+    /** onStartCommand until the first page finished loading. */
+    long getFirstContentMillis() {
+        return firstContentMillis;
+    }
+
+    /** True while a push command is waiting for its content to load. */
+    boolean hasPendingCommand() {
+        return pendingCommandReceivedAt != 0;
+    }
+
+    LatencyStats getCommandToScreen() {
+        return commandToScreen;
+    }
+
+    XmrListener getXmrListener() {
+        return xmrListener;
+    }
+
+    AndroidSchedulerHost getSchedulerHost() {
+        return schedulerHost;
+    }
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -13,6 +13,7 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBar;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.preference.EditTextPreference;
 import androidx.preference.ListPreference;
@@ -36,6 +37,8 @@ import java.util.Map;
 public class SettingsActivity extends AppCompatActivity {
 
     private static final String TAG = "SettingsActivity";
+    private static final int DEFAULT_OVERLAY_WIDTH = 200;
+    private static final int DEFAULT_OVERLAY_HEIGHT = 150;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,16 +61,43 @@ public class SettingsActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Earlier builds stored the overlay size as text. Convert those values to
+     * the ints SeekBarPreference and OverlayService read, falling back to the
+     * default when the text isn't a number.
+     */
+    static void migrateOverlaySize(SharedPreferences prefs) {
+        migrateIntPreference(prefs, Constants.Prefs.OVERLAY_WIDTH, DEFAULT_OVERLAY_WIDTH);
+        migrateIntPreference(prefs, Constants.Prefs.OVERLAY_HEIGHT, DEFAULT_OVERLAY_HEIGHT);
+    }
+
+    private static void migrateIntPreference(SharedPreferences prefs, String key, int defaultValue) {
+        Object value = prefs.getAll().get(key);
+        if (!(value instanceof String)) return;
+        int parsed;
+        try {
+            parsed = Integer.parseInt(((String) value).trim());
+        } catch (NumberFormatException e) {
+            parsed = defaultValue;
+        }
+        prefs.edit().putInt(key, parsed).apply();
+    }
+
     /**
      * Settings Fragment containing all preference categories and items.
      */
     public static class SettingsFragment extends PreferenceFragmentCompat implements
             SharedPreferences.OnSharedPreferenceChangeListener {
 
+        private static final int PROBE_REQUESTS = 10;
+        private static final long PROBE_DOWNLOAD_MS = 5000;
+
         private Map<String, String> cameraMap = new HashMap<>();
 
         @Override
         public void onCreatePreferences(Bundle savedInstanceState, String rootKey) {
+            // Must run before the SeekBarPreferences read their persisted values
+            migrateOverlaySize(getPreferenceManager().getSharedPreferences());
             setPreferencesFromResource(R.xml.settings_activity, rootKey);
             
             // Initialize preference summaries
@@ -113,14 +143,14 @@ public class SettingsActivity extends AppCompatActivity {
             
             Preference overlayWidth = findPreference("overlay_width");
             if (overlayWidth != null) {
-                int value = sharedPreferences.getInt("overlay_width", 100);
-                overlayWidth.setSummary(value + "%");
+                int value = sharedPreferences.getInt("overlay_width", DEFAULT_OVERLAY_WIDTH);
+                overlayWidth.setSummary(value + " dp");
             }
             
             Preference overlayHeight = findPreference("overlay_height");
             if (overlayHeight != null) {
-                int value = sharedPreferences.getInt("overlay_height", 100);
-                overlayHeight.setSummary(value + "%");
+                int value = sharedPreferences.getInt("overlay_height", DEFAULT_OVERLAY_HEIGHT);
+                overlayHeight.setSummary(value + " dp");
             }
             
             Preference overlayOpacity = findPreference("overlay_opacity");
@@ -201,6 +231,7 @@ public class SettingsActivity extends AppCompatActivity {
                 String[] cameraIds = cameraManager.getCameraIdList();
                 List<String> entries = new ArrayList<>();
                 List<String> entryValues = new ArrayList<>();
+                String externalId = null;
                 
                 for (String id : cameraIds) {
                     CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(id);
@@ -218,6 +249,9 @@ public class SettingsActivity extends AppCompatActivity {
                                 break;
                             case CameraCharacteristics.LENS_FACING_EXTERNAL:
                                 facingStr = "External (HDMI)";
+                                if (externalId == null) {
+                                    externalId = id;
+                                }
                                 break;
                         }
                     }
@@ -250,9 +284,9 @@ public class SettingsActivity extends AppCompatActivity {
                     cameraIdPref.setEntries(entries.toArray(new String[0]));
                     cameraIdPref.setEntryValues(entryValues.toArray(new String[0]));
                     
-                    // Set default if not already set
+                    // Set default if not already set, preferring the HDMI bridge
                     if (cameraIdPref.getValue() == null) {
-                        cameraIdPref.setValue(entryValues.get(0));
+                        cameraIdPref.setValue(externalId != null ? externalId : entryValues.get(0));
                     }
                     
                     // Update summary
@@ -306,11 +340,20 @@ public class SettingsActivity extends AppCompatActivity {
                 });
             }
             
+            // Run network diagnostics against the configured CMS
+            Preference testConnectionPref = findPreference("test_connection");
+            if (testConnectionPref != null) {
+                testConnectionPref.setOnPreferenceClickListener(preference -> {
+                    testConnection(preference);
+                    return true;
+                });
+            }
+            
             // Update seekbar summaries in real time
             setupSeekBarSummaryUpdater("overlay_position_x", "%");
             setupSeekBarSummaryUpdater("overlay_position_y", "%");
-            setupSeekBarSummaryUpdater("overlay_width", "%");
-            setupSeekBarSummaryUpdater("overlay_height", "%");
+            setupSeekBarSummaryUpdater("overlay_width", " dp");
+            setupSeekBarSummaryUpdater("overlay_height", " dp");
             setupSeekBarSummaryUpdater("overlay_opacity", "%");
         }
         
@@ -328,6 +371,51 @@ public class SettingsActivity extends AppCompatActivity {
             }
         }
         
+        /**
+         * Probe the CMS on a background thread and show the timing report.
+         * The report also includes what the service recorded during normal operation.
+         */
+        private void testConnection(Preference preference) {
+            SharedPreferences sharedPreferences = getPreferenceManager().getSharedPreferences();
+            String cmsUrl = sharedPreferences.getString("cms_url", Constants.XIBO_CMS_URL);
+            if (TextUtils.isEmpty(cmsUrl)) {
+                cmsUrl = Constants.XIBO_CMS_URL;
+            }
+            if (!cmsUrl.startsWith("http://") && !cmsUrl.startsWith("https://")) {
+                Toast.makeText(getContext(), 
+                        "URL should start with http:// or https://", 
+                        Toast.LENGTH_SHORT).show();
+                return;
+            }
+            
+            preference.setEnabled(false);
+            preference.setSummary("Testing connection...");
+            
+            final String probeUrl = cmsUrl;
+            new Thread(() -> {
+                NetworkDiagnostics probe = new NetworkDiagnostics();
+                probe.runProbe(probeUrl, PROBE_REQUESTS, PROBE_DOWNLOAD_MS);
+                String report = probeUrl + "\n\n"
+                        + probe.formatReport()
+                        + "\n\nDuring normal operation:\n"
+                        + NetworkDiagnostics.background().formatReport();
+                
+                if (getActivity() == null) return;
+                getActivity().runOnUiThread(() -> {
+                    if (!isAdded()) return;
+                    preference.setEnabled(true);
+                    preference.setSummary(probe.getFailures() == 0
+                            ? "Last test passed"
+                            : "Last test had " + probe.getFailures() + " failures");
+                    new AlertDialog.Builder(requireContext())
+                            .setTitle("Connection diagnostics")
+                            .setMessage(report)
+                            .setPositiveButton(android.R.string.ok, null)
+                            .show();
+                });
+            }, "ConnectionProbe").start();
+        }
+        
         /**
          * Show a dialog to configure resolution
          */
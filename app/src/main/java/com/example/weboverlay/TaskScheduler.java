@@ -0,0 +1,218 @@
+package com.example.weboverlay;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Coalesces deferrable background work into shared wake windows.
+ * Each task has an earliest start and a deadline; the scheduler only wakes
+ * at the nearest deadline and then runs every task whose window has opened,
+ * so work with overlapping windows shares a single wakeup and wake lock.
+ *
+ * Time, alarms and the wake lock come from a {@link Host}, which keeps the
+ * scheduler free of Android classes and lets it run against a virtual clock.
+ */
+public class TaskScheduler {
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_HIGH = 2;
+
+    private static final long WAKE_LOCK_TIMEOUT_MS = 60_000L;
+    private static final long NO_WAKEUP = Long.MAX_VALUE;
+
+    public interface Host {
+        long now();
+
+        /** Arm a single wakeup at {@code atMillis}, replacing any previous one. */
+        void scheduleWakeup(long atMillis);
+
+        void cancelWakeup();
+
+        void acquireWakeLock(long timeoutMs);
+
+        void releaseWakeLock();
+
+        void onTaskError(String name, RuntimeException e);
+    }
+
+    private static class Task {
+        final String name;
+        final int priority;
+        final long intervalMs;
+        final long flexMs;
+        final Runnable runnable;
+        long earliest;
+        long deadline;
+
+        Task(String name, int priority, long intervalMs, long flexMs, Runnable runnable) {
+            this.name = name;
+            this.priority = priority;
+            this.intervalMs = intervalMs;
+            this.flexMs = flexMs;
+            this.runnable = runnable;
+        }
+    }
+
+    private final Host host;
+    private final List<Task> tasks = new ArrayList<>();
+    private long plannedWakeup = NO_WAKEUP;
+    private boolean shutdown = false;
+
+    private long windowsRun = 0;
+    private long tasksRun = 0;
+
+    public TaskScheduler(Host host) {
+        this.host = host;
+    }
+
+    /**
+     * Run {@code runnable} once, no earlier than {@code delayMs} from now and
+     * no later than {@code delayMs + flexMs}. Replaces any task with the same name.
+     */
+    public void schedule(String name, int priority, long delayMs, long flexMs, Runnable runnable) {
+        add(new Task(name, priority, 0, flexMs, runnable), delayMs);
+    }
+
+    /**
+     * Run {@code runnable} every {@code intervalMs}, allowing each run to slip
+     * by up to {@code flexMs} so it can join another task's window.
+     */
+    public void scheduleRepeating(String name, int priority, long intervalMs, long flexMs,
+                                  Runnable runnable) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("intervalMs must be positive");
+        }
+        add(new Task(name, priority, intervalMs, flexMs, runnable), intervalMs);
+    }
+
+    private synchronized void add(Task task, long delayMs) {
+        if (shutdown) return;
+        removeTask(task.name);
+        task.earliest = host.now() + delayMs;
+        task.deadline = task.earliest + Math.max(0, task.flexMs);
+        tasks.add(task);
+        rearm();
+    }
+
+    public synchronized void cancel(String name) {
+        removeTask(name);
+        rearm();
+    }
+
+    private void removeTask(String name) {
+        Iterator<Task> it = tasks.iterator();
+        while (it.hasNext()) {
+            if (it.next().name.equals(name)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Called by the host when the armed wakeup fires. Runs every task whose
+     * window is open, highest priority first, under one wake lock.
+     */
+    public void onWakeup() {
+        List<Task> due = new ArrayList<>();
+        synchronized (this) {
+            if (shutdown) return;
+            plannedWakeup = NO_WAKEUP;
+            long now = host.now();
+            for (Task task : tasks) {
+                if (task.earliest <= now) {
+                    due.add(task);
+                }
+            }
+            if (due.isEmpty()) {
+                rearm();
+                return;
+            }
+            due.sort((a, b) -> a.priority != b.priority
+                ? Integer.compare(b.priority, a.priority)
+                : Long.compare(a.deadline, b.deadline));
+            windowsRun++;
+        }
+
+        host.acquireWakeLock(WAKE_LOCK_TIMEOUT_MS);
+        try {
+            for (Task task : due) {
+                // An earlier task in this window may have cancelled or replaced it
+                synchronized (this) {
+                    if (!tasks.contains(task)) continue;
+                    tasksRun++;
+                }
+                try {
+                    task.runnable.run();
+                } catch (RuntimeException e) {
+                    host.onTaskError(task.name, e);
+                }
+            }
+        } finally {
+            host.releaseWakeLock();
+        }
+
+        synchronized (this) {
+            long now = host.now();
+            for (Task task : due) {
+                // Skip tasks that were cancelled or replaced while running
+                if (!tasks.contains(task)) continue;
+                if (task.intervalMs > 0) {
+                    // Step from the window start, not the (late) run time, so
+                    // flex slip does not accumulate; skip periods already missed
+                    task.earliest += task.intervalMs;
+                    if (task.earliest <= now) {
+                        long missed = (now - task.earliest) / task.intervalMs + 1;
+                        task.earliest += missed * task.intervalMs;
+                    }
+                    task.deadline = task.earliest + Math.max(0, task.flexMs);
+                } else {
+                    tasks.remove(task);
+                }
+            }
+            rearm();
+        }
+    }
+
+    private void rearm() {
+        if (shutdown) return;
+        long next = NO_WAKEUP;
+        for (Task task : tasks) {
+            next = Math.min(next, task.deadline);
+        }
+        if (next == plannedWakeup) return;
+        plannedWakeup = next;
+        if (next == NO_WAKEUP) {
+            host.cancelWakeup();
+        } else {
+            host.scheduleWakeup(next);
+        }
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        tasks.clear();
+        plannedWakeup = NO_WAKEUP;
+        host.cancelWakeup();
+    }
+
+    public synchronized long getWindowsRun() {
+        return windowsRun;
+    }
+
+    public synchronized long getTasksRun() {
+        return tasksRun;
+    }
+
+    /**
+     * Wakeups that separate timers would have needed but were folded into
+     * an existing window.
+     */
+    public synchronized long getWakeupsAvoided() {
+        return tasksRun - windowsRun;
+    }
+
+    public synchronized int getPendingCount() {
+        return tasks.size();
+    }
+}
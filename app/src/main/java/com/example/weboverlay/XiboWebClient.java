@@ -1,6 +1,7 @@
 package com.example.weboverlay;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.util.Log;
 import android.webkit.WebResourceError;
@@ -9,16 +10,44 @@ import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 import android.webkit.ConsoleMessage;
+import android.webkit.JavascriptInterface;
 import android.webkit.WebChromeClient;
 
 public class XiboWebClient extends WebViewClient {
     private static final String TAG = "XiboWebClient";
     private final Context context;
     private final WebView webView;
+    private final String contentUrl;
+    private final boolean exposeHdmiState;
+    private OnContentLoadedListener contentLoadedListener;
+    private long pageStartNanos = 0;
+    private boolean loadFailed = false;
+    
+    // Latest HDMI analysis state, read by layouts through the JS bridge
+    private volatile boolean hdmiBlack = false;
+    private volatile boolean hdmiStatic = false;
+    // False until the analyzer has a stream, and while the input is taken by another app
+    private volatile boolean hdmiAvailable = false;
 
-    public XiboWebClient(Context context, WebView webView) {
+    public interface OnContentLoadedListener {
+        /**
+         * @param success false when the requested content failed and the
+         *                fallback page is showing instead
+         */
+        void onContentLoaded(String url, boolean success);
+    }
+
+    /**
+     * @param contentUrl      page to show, normally the display's embed URL
+     * @param exposeHdmiState register the HdmiAnalysis JS interface; only
+     *                        set when HDMI frame analysis is enabled
+     */
+    public XiboWebClient(Context context, WebView webView, String contentUrl,
+                         boolean exposeHdmiState) {
         this.context = context;
         this.webView = webView;
+        this.contentUrl = contentUrl;
+        this.exposeHdmiState = exposeHdmiState;
         configureWebView();
     }
 
@@ -36,6 +65,9 @@ public class XiboWebClient extends WebViewClient {
         webView.setBackgroundColor(Color.TRANSPARENT);
         webView.setLayerType(WebView.LAYER_TYPE_HARDWARE, null);
         webView.setWebViewClient(this);
+        if (exposeHdmiState) {
+            webView.addJavascriptInterface(new HdmiBridge(), "HdmiAnalysis");
+        }
         
         // Enable console logging
         webView.setWebChromeClient(new WebChromeClient() {
@@ -47,9 +79,20 @@ public class XiboWebClient extends WebViewClient {
         });
     }
 
+    public void setOnContentLoadedListener(OnContentLoadedListener listener) {
+        this.contentLoadedListener = listener;
+    }
+
     public void loadContent() {
-        Log.d(TAG, "Loading Xibo content from: " + Constants.XIBO_EMBED_URL);
-        webView.loadUrl(Constants.XIBO_EMBED_URL);
+        Log.d(TAG, "Loading Xibo content from: " + contentUrl);
+        loadFailed = false;
+        webView.loadUrl(contentUrl);
+    }
+
+    @Override
+    public void onPageStarted(WebView view, String url, Bitmap favicon) {
+        super.onPageStarted(view, url, favicon);
+        pageStartNanos = System.nanoTime();
     }
 
     @Override
@@ -57,19 +100,81 @@ public class XiboWebClient extends WebViewClient {
         super.onPageFinished(view, url);
         Log.d(TAG, "Page load finished: " + url);
         
+        // onPageFinished can fire more than once per load; only time the first
+        if (pageStartNanos != 0) {
+            if (loadFailed) {
+                NetworkDiagnostics.background().recordFailure();
+            } else {
+                NetworkDiagnostics.background().pageLoad.record(
+                    (System.nanoTime() - pageStartNanos) / 1_000_000L);
+            }
+            pageStartNanos = 0;
+        }
+        
         // Ensure transparency
         String js = "document.body.style.backgroundColor = 'transparent';" +
                    "document.documentElement.style.backgroundColor = 'transparent';";
         view.evaluateJavascript(js, null);
+        
+        if (contentLoadedListener != null) {
+            contentLoadedListener.onContentLoaded(url, !loadFailed);
+        }
     }
 
     @Override
     public void onReceivedError(WebView view, WebResourceRequest request, WebResourceError error) {
         super.onReceivedError(view, request, error);
+        // Subresources (images, favicon) failing doesn't mean the layout failed
+        if (!request.isForMainFrame()) {
+            Log.w(TAG, "Error loading " + request.getUrl() + ": " + error.getDescription());
+            return;
+        }
         Log.e(TAG, "Error loading content: " + error.getDescription());
+        loadFailed = true;
         loadFallbackContent();
     }
 
+    /**
+     * Forward an HDMI analysis event to the layout as a "hdmiframe"
+     * CustomEvent on window. Must be called on the main thread.
+     */
+    public void dispatchHdmiEvent(String type, boolean active, long latencyMs) {
+        if (LumaAnalyzer.EVENT_BLACK.equals(type)) {
+            hdmiBlack = active;
+        } else if (LumaAnalyzer.EVENT_STATIC.equals(type)) {
+            hdmiStatic = active;
+        } else if (HdmiFrameAnalyzer.EVENT_UNAVAILABLE.equals(type)) {
+            hdmiAvailable = !active;
+        }
+        
+        String js = "window.dispatchEvent(new CustomEvent('hdmiframe', {detail: {"
+            + "type: '" + type + "', active: " + active + ", latencyMs: " + latencyMs + "}}));";
+        webView.evaluateJavascript(js, null);
+    }
+
+    private class HdmiBridge {
+        @JavascriptInterface
+        public String getState() {
+            return "{\"available\":" + hdmiAvailable + ",\"black\":" + hdmiBlack
+                + ",\"static\":" + hdmiStatic + "}";
+        }
+    }
+
+    /**
+     * Release the WebView. Call after it has been removed from the window;
+     * the client must not be used afterwards.
+     */
+    public void destroy() {
+        contentLoadedListener = null;
+        webView.stopLoading();
+        if (exposeHdmiState) {
+            webView.removeJavascriptInterface("HdmiAnalysis");
+        }
+        webView.setWebChromeClient(null);
+        webView.setWebViewClient(new WebViewClient());
+        webView.destroy();
+    }
+
     private void loadFallbackContent() {
         String html = "<html><body style='background: transparent;'>" +
                      "<h2 style='color: white;'>Xibo Content Unavailable</h2>" +
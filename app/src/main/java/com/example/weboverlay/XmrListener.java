@@ -0,0 +1,135 @@
+package com.example.weboverlay;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * Long-lived push channel to the CMS message relay.
+ * Keeps one WebSocket open, relies on OkHttp pings as the heartbeat and
+ * reconnects with exponential backoff. Commands are delivered to the
+ * callback on the main thread, so the service only does work when the
+ * CMS actually has something for us.
+ */
+public class XmrListener extends WebSocketListener {
+    private static final String TAG = "XmrListener";
+    private static final long MAX_BACKOFF_MS = 60_000L;
+
+    public interface Callback {
+        void onXmrCommand(XmrMessage message, long receivedAtMillis);
+    }
+
+    private final String url;
+    private final Callback callback;
+    private final OkHttpClient client;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable reconnectRunnable = this::connect;
+
+    private WebSocket webSocket;
+    private long backoffMs = Constants.XMR_RECONNECT_MIN_MS;
+    private boolean running = false;
+
+    public XmrListener(String url, Callback callback) {
+        this.url = url;
+        this.callback = callback;
+        this.client = new OkHttpClient.Builder()
+            .pingInterval(Constants.XMR_HEARTBEAT_SECONDS, TimeUnit.SECONDS)
+            .readTimeout(0, TimeUnit.MILLISECONDS)
+            .eventListenerFactory(NetworkTimingListener.factory(NetworkDiagnostics.background()))
+            .build();
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        connect();
+    }
+
+    public void stop() {
+        running = false;
+        mainHandler.removeCallbacks(reconnectRunnable);
+        if (webSocket != null) {
+            webSocket.close(1000, "Service stopped");
+            webSocket = null;
+        }
+        // Each listener owns its client; release its threads and sockets so
+        // repeated service restarts don't accumulate them. Not restartable after this.
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /** True once stopped and every client dispatcher thread has exited. */
+    boolean isTerminated() {
+        return client.dispatcher().executorService().isTerminated();
+    }
+
+    /** Delay that will be used for the next reconnect attempt. */
+    long getBackoffMs() {
+        return backoffMs;
+    }
+
+    private void connect() {
+        if (!running) return;
+        Log.d(TAG, "Connecting to XMR: " + url);
+        Request request = new Request.Builder().url(url).build();
+        webSocket = client.newWebSocket(request, this);
+    }
+
+    private void scheduleReconnect() {
+        if (!running) return;
+        Log.d(TAG, "Reconnecting to XMR in " + backoffMs + "ms");
+        mainHandler.removeCallbacks(reconnectRunnable);
+        mainHandler.postDelayed(reconnectRunnable, backoffMs);
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket, Response response) {
+        Log.d(TAG, "XMR connected");
+        mainHandler.post(() -> backoffMs = Constants.XMR_RECONNECT_MIN_MS);
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String text) {
+        long receivedAt = System.currentTimeMillis();
+        XmrMessage message = XmrMessage.parse(text);
+        if (message == null) {
+            Log.w(TAG, "Ignoring malformed XMR payload");
+            return;
+        }
+        if (message.isExpired(receivedAt)) {
+            Log.d(TAG, "Ignoring expired XMR command: " + message.getAction());
+            return;
+        }
+        mainHandler.post(() -> {
+            if (running) {
+                callback.onXmrCommand(message, receivedAt);
+            }
+        });
+    }
+
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+        webSocket.close(1000, null);
+    }
+
+    @Override
+    public void onClosed(WebSocket webSocket, int code, String reason) {
+        Log.d(TAG, "XMR closed: " + code + " " + reason);
+        mainHandler.post(this::scheduleReconnect);
+    }
+
+    @Override
+    public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+        Log.w(TAG, "XMR connection failed: " + t.getMessage());
+        mainHandler.post(this::scheduleReconnect);
+    }
+}
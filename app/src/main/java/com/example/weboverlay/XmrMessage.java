@@ -0,0 +1,102 @@
+package com.example.weboverlay;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * A single command pushed by the CMS message relay (XMR).
+ * Mirrors the Xibo XMR payload: an action name, the time the CMS created
+ * the command and a time-to-live after which it must be ignored.
+ */
+public class XmrMessage {
+    public static final String ACTION_COLLECT_NOW = "collectNow";
+    public static final String ACTION_CHANGE_LAYOUT = "changeLayout";
+    public static final String ACTION_SCREENSHOT = "screenShot";
+
+    private final String action;
+    private final long createdAtMillis;
+    private final long ttlSeconds;
+    private final String layoutId;
+
+    public XmrMessage(String action, long createdAtMillis, long ttlSeconds, String layoutId) {
+        this.action = action;
+        this.createdAtMillis = createdAtMillis;
+        this.ttlSeconds = ttlSeconds;
+        this.layoutId = layoutId;
+    }
+
+    /**
+     * Parse a relay payload. Returns null for anything that is not a
+     * well-formed command so the listener can simply drop it.
+     */
+    public static XmrMessage parse(String payload) {
+        try {
+            JSONObject json = new JSONObject(payload);
+            String action = json.optString("action", null);
+            if (action == null || action.isEmpty()) {
+                return null;
+            }
+            return new XmrMessage(
+                action,
+                parseCreatedDt(json.opt("createdDt")),
+                json.optLong("ttl", 0L),
+                json.optString("layoutId", null)
+            );
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Xibo sends createdDt as an ISO-8601 string (e.g. 2024-05-01T10:15:30+00:00).
+     * Epoch milliseconds are accepted too. Returns 0 when absent or unparseable,
+     * which disables TTL expiry for the command.
+     */
+    static long parseCreatedDt(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (!(value instanceof String)) {
+            return 0L;
+        }
+        String text = (String) value;
+        // SimpleDateFormat is not thread-safe, so use a fresh one per call
+        String pattern = text.indexOf('.') > 0
+            ? "yyyy-MM-dd'T'HH:mm:ss.SSSXXX"
+            : "yyyy-MM-dd'T'HH:mm:ssXXX";
+        try {
+            Date date = new SimpleDateFormat(pattern, Locale.US).parse(text);
+            return date != null ? date.getTime() : 0L;
+        } catch (ParseException e) {
+            return 0L;
+        }
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public String getLayoutId() {
+        return layoutId;
+    }
+
+    /**
+     * A command is expired once its TTL has elapsed since creation.
+     * Commands without a creation time or TTL never expire.
+     */
+    public boolean isExpired(long nowMillis) {
+        if (createdAtMillis <= 0 || ttlSeconds <= 0) {
+            return false;
+        }
+        return nowMillis > createdAtMillis + ttlSeconds * 1000L;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.weboverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.util.Size;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Analysis stream size selection against typical camera size lists.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HdmiFrameAnalyzerTest {
+
+    @Test
+    public void picksSmallestSizeCoveringTarget() {
+        Size[] sizes = {
+            new Size(1920, 1080), new Size(640, 480), new Size(320, 240),
+            new Size(176, 144), new Size(1280, 720)
+        };
+        assertEquals(new Size(320, 240), HdmiFrameAnalyzer.chooseAnalysisSize(sizes, 320, 180));
+    }
+
+    @Test
+    public void hdmiBridgeWithOnlyHdSizesGets720p() {
+        Size[] sizes = { new Size(1920, 1080), new Size(1280, 720) };
+        assertEquals(new Size(1280, 720), HdmiFrameAnalyzer.chooseAnalysisSize(sizes, 320, 180));
+    }
+
+    @Test
+    public void fallsBackToLargestWhenNothingCoversTarget() {
+        Size[] sizes = { new Size(176, 144), new Size(160, 120) };
+        assertEquals(new Size(176, 144), HdmiFrameAnalyzer.chooseAnalysisSize(sizes, 320, 180));
+    }
+
+    @Test
+    public void noSizesMeansNoStream() {
+        assertNull(HdmiFrameAnalyzer.chooseAnalysisSize(new Size[0], 320, 180));
+        assertNull(HdmiFrameAnalyzer.chooseAnalysisSize(null, 320, 180));
+    }
+}
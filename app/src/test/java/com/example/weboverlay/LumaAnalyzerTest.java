@@ -0,0 +1,130 @@
+package com.example.weboverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plain JVM tests for {@link LumaAnalyzer} on synthetic Y planes.
+ */
+public class LumaAnalyzerTest {
+    private static final int WIDTH = 32;
+    private static final int HEIGHT = 18;
+    // Padded like a real Y plane; padding bytes must never be analyzed
+    private static final int ROW_STRIDE = 40;
+    private static final byte PADDING = (byte) 77;
+
+    private LumaAnalyzer analyzer;
+    private final List<String> events = new ArrayList<>();
+    private long frameNumber = 0;
+
+    @Before
+    public void setUp() {
+        analyzer = new LumaAnalyzer((type, active, frameTimestampNanos) ->
+            events.add(type + (active ? "+" : "-") + "@" + frameTimestampNanos));
+    }
+
+    private static ByteBuffer flat(int luma) {
+        byte[] plane = new byte[ROW_STRIDE * HEIGHT];
+        Arrays.fill(plane, (byte) luma);
+        return ByteBuffer.wrap(plane);
+    }
+
+    /** Left and right halves at different levels; swap them for a hard cut. */
+    private static ByteBuffer split(int left, int right) {
+        byte[] plane = new byte[ROW_STRIDE * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < ROW_STRIDE; x++) {
+                plane[y * ROW_STRIDE + x] = x >= WIDTH ? PADDING
+                    : (byte) (x < WIDTH / 2 ? left : right);
+            }
+        }
+        return ByteBuffer.wrap(plane);
+    }
+
+    private void feed(ByteBuffer frame) {
+        analyzer.analyze(frame, WIDTH, HEIGHT, ROW_STRIDE, frameNumber++);
+    }
+
+    @Test
+    public void reportsBlackStartAndEnd() {
+        feed(flat(128));
+        feed(flat(0));
+        feed(flat(5));
+        assertTrue(analyzer.isBlack());
+        feed(flat(128));
+
+        assertEquals(Arrays.asList("black+@1", "black-@3"), events);
+        assertFalse(analyzer.isBlack());
+    }
+
+    @Test
+    public void cutsIntoAndOutOfBlackAreNotSceneCuts() {
+        feed(flat(200));
+        feed(flat(0));
+        feed(flat(200));
+
+        assertEquals(Arrays.asList("black+@1", "black-@2"), events);
+    }
+
+    @Test
+    public void reportsSceneCutBetweenContent() {
+        feed(split(30, 220));
+        feed(split(30, 220));
+        feed(split(220, 30));
+
+        assertEquals(Arrays.asList("sceneCut+@2"), events);
+        assertEquals(190f, analyzer.getMeanDiff(), 0.01f);
+    }
+
+    @Test
+    public void reportsStaticAfterUnchangingFramesAndClearsOnMotion() {
+        for (int i = 0; i <= 60; i++) {
+            feed(flat(128));
+        }
+        assertEquals(Arrays.asList("static+@60"), events);
+        assertTrue(analyzer.isStatic());
+
+        feed(flat(100));
+        assertEquals(Arrays.asList("static+@60", "static-@61"), events);
+        assertFalse(analyzer.isStatic());
+    }
+
+    @Test
+    public void blackScreenIsNotStatic() {
+        for (int i = 0; i < 120; i++) {
+            feed(flat(0));
+        }
+        assertEquals(Arrays.asList("black+@0"), events);
+        assertFalse(analyzer.isStatic());
+    }
+
+    @Test
+    public void resetSkipsDiffAgainstFrameFromBeforeGap() {
+        feed(split(30, 220));
+        analyzer.reset();
+        feed(split(220, 30));
+
+        assertTrue(events.isEmpty());
+        assertEquals(0f, analyzer.getMeanDiff(), 0.01f);
+    }
+
+    @Test
+    public void histogramCountsOnlyVisiblePixels() {
+        feed(split(10, 250));
+
+        int[] histogram = analyzer.getHistogram();
+        assertEquals(WIDTH * HEIGHT / 2, histogram[10]);
+        assertEquals(WIDTH * HEIGHT / 2, histogram[250]);
+        assertEquals(0, histogram[PADDING]);
+        assertEquals(130f, analyzer.getMeanLuma(), 0.01f);
+    }
+}
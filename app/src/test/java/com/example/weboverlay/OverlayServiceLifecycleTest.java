@@ -0,0 +1,302 @@
+package com.example.weboverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.Manifest;
+import android.content.Context;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import androidx.preference.PreferenceManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.shadows.ShadowLog;
+import org.robolectric.shadows.ShadowWindowManagerImpl;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.function.BooleanSupplier;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Starts and stops {@link OverlayService} against a MockWebServer standing
+ * in for the CMS (embed page and XMR relay) and checks that teardown
+ * releases everything the service created.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class OverlayServiceLifecycleTest {
+    private static final int CYCLES = 300;
+    private static final int WARMUP_CYCLES = 50;
+    private static final long MAX_HEAP_GROWTH_BYTES = 8L * 1024 * 1024;
+    // Relay send to onContentLoaded, with the page load itself simulated
+    private static final long COMMAND_TO_SCREEN_BUDGET_MS = 1000;
+    // Startup phase budgets on a warmed-up JVM; page loads are simulated,
+    // so the webview phase covers client setup and loadUrl only
+    private static final long INFLATE_BUDGET_MS = 200;
+    private static final long ATTACH_BUDGET_MS = 100;
+    private static final long WEBVIEW_BUDGET_MS = 200;
+    private static final long FIRST_CONTENT_BUDGET_MS = 500;
+
+    private MockWebServer cms;
+    // Server side of the service's current XMR connection
+    private volatile WebSocket relaySocket;
+    private WindowManager windowManager;
+
+    @Before
+    public void setUp() throws Exception {
+        cms = new MockWebServer();
+        cms.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/xmr".equals(request.getPath())) {
+                    return new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+                        @Override
+                        public void onOpen(WebSocket webSocket, Response response) {
+                            relaySocket = webSocket;
+                        }
+
+                        @Override
+                        public void onClosing(WebSocket webSocket, int code, String reason) {
+                            webSocket.close(1000, null);
+                        }
+                    });
+                }
+                return new MockResponse().setBody("<html><body></body></html>");
+            }
+        });
+        cms.start();
+        OverlayService.contentUrl = cms.url("/web/displays/embed/test").toString();
+        OverlayService.xmrUrl = cms.url("/xmr").toString();
+
+        Context context = RuntimeEnvironment.getApplication();
+        windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        OverlayService.contentUrl = Constants.XIBO_EMBED_URL;
+        OverlayService.xmrUrl = Constants.XIBO_XMR_URL;
+        cms.shutdown();
+    }
+
+    @Test
+    public void startLoadsContentWithinStartupBudgets() {
+        // Keep class loading and layout parsing out of the measured start
+        stopAndWait(Robolectric.buildService(OverlayService.class).create().startCommand(0, 1));
+
+        ServiceController<OverlayService> controller =
+            Robolectric.buildService(OverlayService.class).create().startCommand(0, 1);
+        OverlayService service = controller.get();
+
+        WebView webView = findWebView();
+        assertEquals(OverlayService.contentUrl, shadowOf(webView).getLastLoadedUrl());
+        // The webview phase only ends when the first page has finished
+        assertEquals(-1, service.getWebViewMillis());
+
+        WebViewClient client = shadowOf(webView).getWebViewClient();
+        client.onPageStarted(webView, OverlayService.contentUrl, null);
+        client.onPageFinished(webView, OverlayService.contentUrl);
+
+        assertWithinBudget("inflate", service.getInflateMillis(), INFLATE_BUDGET_MS);
+        assertWithinBudget("attach", service.getAttachMillis(), ATTACH_BUDGET_MS);
+        assertWithinBudget("webview", service.getWebViewMillis(), WEBVIEW_BUDGET_MS);
+        assertWithinBudget("first content", service.getFirstContentMillis(),
+            FIRST_CONTENT_BUDGET_MS);
+        assertTrue(service.getFirstContentMillis() >= service.getWebViewMillis());
+        stopAndWait(controller);
+    }
+
+    @Test
+    public void startsWithOverlaySizeStoredAsText() {
+        // Earlier builds' settings screen saved the size as text
+        PreferenceManager.getDefaultSharedPreferences(RuntimeEnvironment.getApplication()).edit()
+            .putString(Constants.Prefs.OVERLAY_WIDTH, "320")
+            .putString(Constants.Prefs.OVERLAY_HEIGHT, "")
+            .commit();
+        ServiceController<OverlayService> controller =
+            Robolectric.buildService(OverlayService.class).create().startCommand(0, 1);
+
+        ViewGroup.LayoutParams params = windowViews().get(0).getLayoutParams();
+        assertEquals(320, params.width);
+        assertEquals(150, params.height);
+        controller.destroy();
+    }
+
+    @Test
+    public void pushedCommandReachesScreenWithinBudget() {
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.US);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+        ServiceController<OverlayService> controller =
+            Robolectric.buildService(OverlayService.class).create().startCommand(0, 1);
+        OverlayService service = controller.get();
+        WebView webView = findWebView();
+        WebViewClient client = shadowOf(webView).getWebViewClient();
+        // Finish the startup load so it isn't mistaken for the command's
+        client.onPageStarted(webView, OverlayService.contentUrl, null);
+        client.onPageFinished(webView, OverlayService.contentUrl);
+
+        waitFor(() -> relaySocket != null);
+        long sentAt = System.currentTimeMillis();
+        relaySocket.send("{\"action\":\"collectNow\",\"createdDt\":\""
+            + iso.format(new Date()) + "\",\"ttl\":60}");
+        waitFor(service::hasPendingCommand);
+        client.onPageStarted(webView, OverlayService.contentUrl, null);
+        client.onPageFinished(webView, OverlayService.contentUrl);
+        long sendToScreen = System.currentTimeMillis() - sentAt;
+
+        assertFalse(service.hasPendingCommand());
+        assertEquals(1, service.getCommandToScreen().count());
+        assertTrue("Relay send to screen took " + sendToScreen + "ms",
+            sendToScreen < COMMAND_TO_SCREEN_BUDGET_MS);
+        controller.destroy();
+    }
+
+    @Test
+    public void destroyReleasesWebViewWindowAndThreads() {
+        assertTeardownReleasesEverything(false);
+    }
+
+    @Test
+    public void destroyWithFrameAnalysisReleasesJsBridge() {
+        PreferenceManager.getDefaultSharedPreferences(RuntimeEnvironment.getApplication()).edit()
+            .putBoolean(Constants.Prefs.HDMI_FRAME_ANALYSIS, true)
+            .commit();
+        shadowOf(RuntimeEnvironment.getApplication()).grantPermissions(Manifest.permission.CAMERA);
+        assertTeardownReleasesEverything(true);
+    }
+
+    private void assertTeardownReleasesEverything(boolean frameAnalysis) {
+        ServiceController<OverlayService> controller =
+            Robolectric.buildService(OverlayService.class).create().startCommand(0, 1);
+        OverlayService service = controller.get();
+        WebView webView = findWebView();
+        XmrListener xmrListener = service.getXmrListener();
+        AndroidSchedulerHost schedulerHost = service.getSchedulerHost();
+        assertNotNull(xmrListener);
+        assertNotNull(schedulerHost);
+        assertTrue(shadowOf(webView).getWebViewClient() instanceof XiboWebClient);
+        assertNotNull(shadowOf(webView).getWebChromeClient());
+        assertEquals(frameAnalysis, shadowOf(webView).getJavascriptInterface("HdmiAnalysis") != null);
+        waitFor(() -> cms.getRequestCount() > 0);
+
+        controller.destroy();
+
+        assertTrue(shadowOf(webView).wasDestroyCalled());
+        assertFalse(shadowOf(webView).getWebViewClient() instanceof XiboWebClient);
+        assertNull(shadowOf(webView).getWebChromeClient());
+        assertNull(shadowOf(webView).getJavascriptInterface("HdmiAnalysis"));
+        assertTrue(windowViews().isEmpty());
+        assertFalse(OverlayService.isRunning);
+        waitFor(xmrListener::isTerminated);
+        waitFor(() -> !schedulerHost.isAlive());
+    }
+
+    @Test
+    public void repeatedStartStopKeepsMemoryAndThreadsBounded() {
+        long baselineHeap = 0;
+        int baselineThreads = 0;
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            stopAndWait(Robolectric.buildService(OverlayService.class).create().startCommand(0, 1));
+            // Robolectric keeps every log line in memory
+            ShadowLog.clear();
+
+            if (cycle == WARMUP_CYCLES) {
+                baselineHeap = usedHeapAfterGc();
+                baselineThreads = Thread.activeCount();
+            }
+        }
+
+        assertTrue(windowViews().isEmpty());
+        long growth = usedHeapAfterGc() - baselineHeap;
+        assertTrue("Heap grew by " + growth + " bytes over "
+            + (CYCLES - WARMUP_CYCLES) + " cycles", growth < MAX_HEAP_GROWTH_BYTES);
+        // OkHttp keeps a few shared, idle task threads around for a while
+        assertTrue(Thread.activeCount() <= baselineThreads + 4);
+    }
+
+    /** Destroy the service and wait for its background threads to exit. */
+    private static void stopAndWait(ServiceController<OverlayService> controller) {
+        XmrListener xmrListener = controller.get().getXmrListener();
+        AndroidSchedulerHost schedulerHost = controller.get().getSchedulerHost();
+        controller.destroy();
+        waitFor(xmrListener::isTerminated);
+        waitFor(() -> !schedulerHost.isAlive());
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static void assertWithinBudget(String phase, long millis, long budgetMs) {
+        assertTrue(phase + " phase not measured", millis >= 0);
+        assertTrue(phase + " phase took " + millis + "ms, budget " + budgetMs + "ms",
+            millis <= budgetMs);
+    }
+
+    private List<View> windowViews() {
+        ShadowWindowManagerImpl shadow = (ShadowWindowManagerImpl) shadowOf(windowManager);
+        return shadow.getViews();
+    }
+
+    private WebView findWebView() {
+        List<View> views = windowViews();
+        assertEquals(1, views.size());
+        WebView webView = views.get(0).findViewById(R.id.primary_webview);
+        assertNotNull(webView);
+        return webView;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            sleep(20);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** Drain main-looper posts from background threads until the condition holds. */
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            sleep(10);
+        }
+        fail("Timed out waiting for teardown");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.weboverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.content.SharedPreferences;
+
+import androidx.preference.PreferenceFragmentCompat;
+import androidx.preference.PreferenceManager;
+import androidx.preference.SeekBarPreference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+
+/**
+ * Opens {@link SettingsActivity} with fresh and legacy preferences.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SettingsActivityTest {
+    private SharedPreferences prefs;
+
+    @Before
+    public void setUp() {
+        prefs = PreferenceManager.getDefaultSharedPreferences(RuntimeEnvironment.getApplication());
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void opensAndStoresOverlaySizeAsInts() {
+        PreferenceFragmentCompat fragment = open();
+
+        assertNotNull(fragment.findPreference("test_connection"));
+        assertNotNull(fragment.findPreference(Constants.Prefs.HDMI_FRAME_ANALYSIS));
+        assertEquals(200, prefs.getInt(Constants.Prefs.OVERLAY_WIDTH, -1));
+        assertEquals(150, prefs.getInt(Constants.Prefs.OVERLAY_HEIGHT, -1));
+    }
+
+    @Test
+    public void opensWithOverlaySizeStoredAsText() {
+        // What the EditTextPreferences of earlier builds left behind
+        prefs.edit()
+            .putString(Constants.Prefs.OVERLAY_WIDTH, "320")
+            .putString(Constants.Prefs.OVERLAY_HEIGHT, "tall")
+            .commit();
+
+        PreferenceFragmentCompat fragment = open();
+
+        SeekBarPreference width = fragment.findPreference(Constants.Prefs.OVERLAY_WIDTH);
+        assertNotNull(width);
+        assertEquals(320, width.getValue());
+        assertEquals(320, prefs.getInt(Constants.Prefs.OVERLAY_WIDTH, -1));
+        assertEquals(150, prefs.getInt(Constants.Prefs.OVERLAY_HEIGHT, -1));
+    }
+
+    private PreferenceFragmentCompat open() {
+        ActivityController<SettingsActivity> controller =
+            Robolectric.buildActivity(SettingsActivity.class).setup();
+        PreferenceFragmentCompat fragment = (PreferenceFragmentCompat) controller.get()
+            .getSupportFragmentManager().findFragmentById(R.id.settings);
+        assertNotNull(fragment);
+        return fragment;
+    }
+}
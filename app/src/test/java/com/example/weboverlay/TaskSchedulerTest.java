@@ -0,0 +1,229 @@
+package com.example.weboverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plain JVM tests for {@link TaskScheduler} on a virtual clock.
+ */
+public class TaskSchedulerTest {
+    private static final long MINUTE = 60_000L;
+
+    private VirtualHost host;
+    private TaskScheduler scheduler;
+    private final List<String> runs = new ArrayList<>();
+
+    /** Host whose clock only moves when the test advances it. */
+    private static class VirtualHost implements TaskScheduler.Host {
+        long now = 0;
+        long wakeup = Long.MAX_VALUE;
+        int wakeLocksHeld = 0;
+        int wakeLockAcquisitions = 0;
+        final List<String> errors = new ArrayList<>();
+
+        @Override
+        public long now() {
+            return now;
+        }
+
+        @Override
+        public void scheduleWakeup(long atMillis) {
+            wakeup = atMillis;
+        }
+
+        @Override
+        public void cancelWakeup() {
+            wakeup = Long.MAX_VALUE;
+        }
+
+        @Override
+        public void acquireWakeLock(long timeoutMs) {
+            wakeLocksHeld++;
+            wakeLockAcquisitions++;
+        }
+
+        @Override
+        public void releaseWakeLock() {
+            wakeLocksHeld--;
+        }
+
+        @Override
+        public void onTaskError(String name, RuntimeException e) {
+            errors.add(name);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        host = new VirtualHost();
+        scheduler = new TaskScheduler(host);
+    }
+
+    /** Fire every armed wakeup up to {@code target}, moving the clock to each. */
+    private void advanceTo(long target) {
+        while (host.wakeup <= target) {
+            host.now = host.wakeup;
+            // Wakeups are one-shot, like the exact alarm behind them
+            host.wakeup = Long.MAX_VALUE;
+            scheduler.onWakeup();
+        }
+        host.now = target;
+    }
+
+    private Runnable record(String name) {
+        return () -> runs.add(name + "@" + host.now / MINUTE);
+    }
+
+    @Test
+    public void repeatingTaskKeepsItsIntervalDespiteFlex() {
+        scheduler.scheduleRepeating("sample", TaskScheduler.PRIORITY_LOW,
+            15 * MINUTE, 5 * MINUTE, record("sample"));
+
+        advanceTo(400 * MINUTE);
+
+        // First run at the end of its first window, then every 15 minutes
+        assertEquals(26, runs.size());
+        assertEquals("sample@20", runs.get(0));
+        assertEquals("sample@35", runs.get(1));
+        assertEquals("sample@395", runs.get(25));
+    }
+
+    @Test
+    public void coalescesTasksWithOverlappingWindows() {
+        scheduler.schedule("a", TaskScheduler.PRIORITY_NORMAL, 10 * MINUTE, 10 * MINUTE, record("a"));
+        scheduler.schedule("b", TaskScheduler.PRIORITY_NORMAL, 15 * MINUTE, 20 * MINUTE, record("b"));
+
+        assertEquals(20 * MINUTE, host.wakeup);
+        advanceTo(60 * MINUTE);
+
+        assertEquals(Arrays.asList("a@20", "b@20"), runs);
+        assertEquals(1, scheduler.getWindowsRun());
+        assertEquals(2, scheduler.getTasksRun());
+        assertEquals(1, scheduler.getWakeupsAvoided());
+        assertEquals(1, host.wakeLockAcquisitions);
+        assertEquals(0, host.wakeLocksHeld);
+        assertEquals(Long.MAX_VALUE, host.wakeup);
+    }
+
+    @Test
+    public void taskWhoseWindowHasNotOpenedWaitsForItsOwnWindow() {
+        scheduler.schedule("early", TaskScheduler.PRIORITY_NORMAL, 10 * MINUTE, 10 * MINUTE, record("early"));
+        scheduler.schedule("late", TaskScheduler.PRIORITY_NORMAL, 30 * MINUTE, 10 * MINUTE, record("late"));
+
+        advanceTo(60 * MINUTE);
+
+        assertEquals(Arrays.asList("early@20", "late@40"), runs);
+        assertEquals(2, scheduler.getWindowsRun());
+        assertEquals(0, scheduler.getWakeupsAvoided());
+    }
+
+    @Test
+    public void runsHigherPriorityFirstWithinAWindow() {
+        scheduler.schedule("low", TaskScheduler.PRIORITY_LOW, MINUTE, MINUTE, record("low"));
+        scheduler.schedule("high", TaskScheduler.PRIORITY_HIGH, MINUTE, 5 * MINUTE, record("high"));
+        scheduler.schedule("normal", TaskScheduler.PRIORITY_NORMAL, MINUTE, 3 * MINUTE, record("normal"));
+
+        advanceTo(10 * MINUTE);
+
+        assertEquals(Arrays.asList("high@2", "normal@2", "low@2"), runs);
+    }
+
+    @Test
+    public void neverRunsBeforeEarliestOrAfterDeadline() {
+        scheduler.schedule("task", TaskScheduler.PRIORITY_NORMAL, 100 * MINUTE, 50 * MINUTE, record("task"));
+
+        // A wakeup for other work inside [0, 100) must not pull the task forward
+        scheduler.schedule("other", TaskScheduler.PRIORITY_NORMAL, 60 * MINUTE, 0, record("other"));
+        advanceTo(99 * MINUTE);
+        assertEquals(Arrays.asList("other@60"), runs);
+
+        advanceTo(200 * MINUTE);
+        assertEquals(Arrays.asList("other@60", "task@150"), runs);
+    }
+
+    @Test
+    public void cancelDuringWindowSkipsTheCancelledTask() {
+        scheduler.schedule("first", TaskScheduler.PRIORITY_HIGH, MINUTE, 0, () -> {
+            runs.add("first");
+            scheduler.cancel("second");
+        });
+        scheduler.scheduleRepeating("second", TaskScheduler.PRIORITY_LOW, MINUTE, 0, record("second"));
+
+        advanceTo(10 * MINUTE);
+
+        assertEquals(Arrays.asList("first"), runs);
+        assertEquals(1, scheduler.getTasksRun());
+        assertEquals(0, scheduler.getPendingCount());
+        assertEquals(Long.MAX_VALUE, host.wakeup);
+    }
+
+    @Test
+    public void replaceDuringWindowKeepsOnlyTheReplacement() {
+        scheduler.scheduleRepeating("poll", TaskScheduler.PRIORITY_NORMAL, 10 * MINUTE, 0, () -> {
+            runs.add("old@" + host.now / MINUTE);
+            scheduler.scheduleRepeating("poll", TaskScheduler.PRIORITY_NORMAL, 30 * MINUTE, 0,
+                record("new"));
+        });
+
+        advanceTo(100 * MINUTE);
+
+        // The replacement's schedule starts from when it was registered
+        assertEquals(Arrays.asList("old@10", "new@40", "new@70", "new@100"), runs);
+        assertEquals(1, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void countsWakeupsAvoidedAcrossRepeatingTasks() {
+        scheduler.scheduleRepeating("diagnostics", TaskScheduler.PRIORITY_LOW,
+            15 * MINUTE, 5 * MINUTE, record("diagnostics"));
+        scheduler.scheduleRepeating("stats", TaskScheduler.PRIORITY_LOW,
+            30 * MINUTE, 15 * MINUTE, record("stats"));
+
+        advanceTo(120 * MINUTE);
+
+        // Stats always joins a diagnostics window instead of waking on its own
+        assertEquals(10, scheduler.getTasksRun());
+        assertEquals(7, scheduler.getWindowsRun());
+        assertEquals(3, scheduler.getWakeupsAvoided());
+        assertTrue(runs.contains("stats@35"));
+        assertTrue(runs.contains("stats@65"));
+        assertTrue(runs.contains("stats@95"));
+        assertEquals(7, host.wakeLockAcquisitions);
+        assertEquals(0, host.wakeLocksHeld);
+    }
+
+    @Test
+    public void failingTaskDoesNotStopTheWindow() {
+        scheduler.schedule("broken", TaskScheduler.PRIORITY_HIGH, MINUTE, 0, () -> {
+            throw new IllegalStateException("boom");
+        });
+        scheduler.schedule("healthy", TaskScheduler.PRIORITY_LOW, MINUTE, 0, record("healthy"));
+
+        advanceTo(5 * MINUTE);
+
+        assertEquals(Arrays.asList("broken"), host.errors);
+        assertEquals(Arrays.asList("healthy@1"), runs);
+        assertEquals(0, host.wakeLocksHeld);
+    }
+
+    @Test
+    public void shutdownCancelsWakeupAndIgnoresNewWork() {
+        scheduler.scheduleRepeating("task", TaskScheduler.PRIORITY_LOW, MINUTE, 0, record("task"));
+        scheduler.shutdown();
+        scheduler.schedule("late", TaskScheduler.PRIORITY_LOW, MINUTE, 0, record("late"));
+
+        assertEquals(Long.MAX_VALUE, host.wakeup);
+        assertEquals(0, scheduler.getPendingCount());
+        advanceTo(10 * MINUTE);
+        assertFalse(runs.contains("late@1"));
+        assertTrue(runs.isEmpty());
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.weboverlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * Runs {@link XmrListener} against a MockWebServer standing in for the
+ * CMS message relay.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class XmrListenerTest {
+    private MockWebServer relay;
+    private XmrListener listener;
+    private final List<XmrMessage> received = new ArrayList<>();
+    private final List<Boolean> deliveredOnMainThread = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        relay = new MockWebServer();
+        relay.start();
+        listener = new XmrListener(relay.url("/xmr").toString(),
+            (message, receivedAtMillis) -> {
+                received.add(message);
+                deliveredOnMainThread.add(Looper.myLooper() == Looper.getMainLooper());
+            });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        listener.stop();
+        relay.shutdown();
+    }
+
+    @Test
+    public void deliversCommandOnMainThread() {
+        relay.enqueue(relaySending(command("collectNow", new Date(), 60)));
+        listener.start();
+
+        waitFor(() -> received.size() == 1);
+        assertEquals(XmrMessage.ACTION_COLLECT_NOW, received.get(0).getAction());
+        assertTrue(received.get(0).getCreatedAtMillis() > 0);
+        assertTrue(deliveredOnMainThread.get(0));
+    }
+
+    @Test
+    public void dropsExpiredAndMalformedPayloads() {
+        Date longAgo = new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(10));
+        relay.enqueue(relaySending(
+            "{\"action\":",
+            "{\"ttl\":60}",
+            command("collectNow", longAgo, 60),
+            command("screenShot", new Date(), 60)));
+        listener.start();
+
+        waitFor(() -> received.size() == 1);
+        // Give any wrongly delivered payloads a chance to arrive
+        idleBriefly();
+        assertEquals(1, received.size());
+        assertEquals(XmrMessage.ACTION_SCREENSHOT, received.get(0).getAction());
+    }
+
+    @Test
+    public void reconnectsWithExponentialBackoff() {
+        relay.enqueue(new MockResponse().setResponseCode(500));
+        relay.enqueue(new MockResponse().setResponseCode(500));
+        relay.enqueue(relaySending(command("collectNow", new Date(), 60)));
+        listener.start();
+
+        // First failure: retry in 1s
+        waitFor(() -> listener.getBackoffMs() == 2000);
+        assertEquals(1, relay.getRequestCount());
+        shadowOf(Looper.getMainLooper()).idleFor(999, TimeUnit.MILLISECONDS);
+        idleBriefly();
+        assertEquals(1, relay.getRequestCount());
+        shadowOf(Looper.getMainLooper()).idleFor(1, TimeUnit.MILLISECONDS);
+
+        // Second failure: retry in 2s
+        waitFor(() -> listener.getBackoffMs() == 4000);
+        assertEquals(2, relay.getRequestCount());
+        shadowOf(Looper.getMainLooper()).idleFor(1999, TimeUnit.MILLISECONDS);
+        idleBriefly();
+        assertEquals(2, relay.getRequestCount());
+        shadowOf(Looper.getMainLooper()).idleFor(1, TimeUnit.MILLISECONDS);
+
+        waitFor(() -> received.size() == 1);
+        assertEquals(3, relay.getRequestCount());
+        // A successful connection resets the backoff
+        waitFor(() -> listener.getBackoffMs() == Constants.XMR_RECONNECT_MIN_MS);
+    }
+
+    private static MockResponse relaySending(String... payloads) {
+        return new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                for (String payload : payloads) {
+                    webSocket.send(payload);
+                }
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(1000, null);
+            }
+        });
+    }
+
+    private static String command(String action, Date createdDt, int ttlSeconds) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return "{\"action\":\"" + action + "\",\"createdDt\":\"" + format.format(createdDt)
+            + "\",\"ttl\":" + ttlSeconds + "}";
+    }
+
+    /** Drain main-looper posts from OkHttp threads until the condition holds. */
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            sleep(10);
+        }
+        fail("Timed out waiting for relay");
+    }
+
+    private static void idleBriefly() {
+        for (int i = 0; i < 20; i++) {
+            sleep(10);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.weboverlay.benchmarks;
+
+import com.example.weboverlay.LatencyStats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording and percentile queries on the bounded diagnostics buffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LatencyStatsBenchmark {
+    @Param({"256", "4096"})
+    public int capacity;
+
+    private LatencyStats stats;
+    private long[] samples;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        stats = new LatencyStats(capacity);
+        samples = new long[capacity * 4];
+        for (int i = 0; i < samples.length; i++) {
+            // Long-tailed, like real connect and TTFB timings
+            samples[i] = (long) (20 + Math.abs(random.nextGaussian()) * 80
+                + (random.nextInt(100) == 0 ? 2000 : 0));
+        }
+        for (long sample : samples) {
+            stats.record(sample);
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        stats.record(samples[next]);
+        next = (next + 1) % samples.length;
+    }
+
+    @Benchmark
+    public long percentile() {
+        return stats.percentile(99);
+    }
+
+    @Benchmark
+    public String summary() {
+        return stats.summary("ms");
+    }
+}
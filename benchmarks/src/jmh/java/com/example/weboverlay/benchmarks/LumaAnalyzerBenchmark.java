@@ -0,0 +1,70 @@
+package com.example.weboverlay.benchmarks;
+
+import com.example.weboverlay.LumaAnalyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of HDMI luma analysis at the analysis stream size.
+ * Each cycle plays content, cut and black frames, then holds one frame
+ * long enough to enter and leave the static-slate state. Direct buffers
+ * with row padding mirror what ImageReader hands out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LumaAnalyzerBenchmark {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 180;
+    private static final int ROW_STRIDE = 384;
+    private static final int FRAMES = 16;
+    // Longer than LumaAnalyzer's 60-frame static threshold
+    private static final int HOLD_FRAMES = 64;
+
+    private ByteBuffer[] frames;
+    private int[] sequence;
+    private LumaAnalyzer analyzer;
+    private int next = 0;
+    private long timestamp = 0;
+    private int events = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        frames = new ByteBuffer[FRAMES];
+        for (int f = 0; f < FRAMES; f++) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+            int base = f % 8 == 0 ? 0 : (f < 8 ? 60 : 180);
+            for (int i = 0; i < buffer.capacity(); i++) {
+                int value = base == 0 ? random.nextInt(8) : base + random.nextInt(40);
+                buffer.put(i, (byte) value);
+            }
+            frames[f] = buffer;
+        }
+        sequence = new int[FRAMES + HOLD_FRAMES];
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = i < FRAMES ? i : 1;
+        }
+        analyzer = new LumaAnalyzer((type, active, ts) -> events++);
+    }
+
+    @Benchmark
+    public float analyze() {
+        ByteBuffer frame = frames[sequence[next]];
+        next = (next + 1) % sequence.length;
+        frame.clear();
+        timestamp += 33_333_333L;
+        analyzer.analyze(frame, WIDTH, HEIGHT, ROW_STRIDE, timestamp);
+        return analyzer.getMeanDiff() + events;
+    }
+}
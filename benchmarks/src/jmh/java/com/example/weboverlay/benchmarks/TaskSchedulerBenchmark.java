@@ -0,0 +1,92 @@
+package com.example.weboverlay.benchmarks;
+
+import com.example.weboverlay.TaskScheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Window resolution in the coalescing scheduler against a virtual clock,
+ * with a large schedule of repeating tasks at mixed intervals and flex.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskSchedulerBenchmark {
+    @Param({"16", "256", "1024"})
+    public int tasks;
+
+    private VirtualHost host;
+    private TaskScheduler scheduler;
+
+    static class VirtualHost implements TaskScheduler.Host {
+        long now = 0;
+        long wakeup = Long.MAX_VALUE;
+
+        @Override
+        public long now() {
+            return now;
+        }
+
+        @Override
+        public void scheduleWakeup(long atMillis) {
+            wakeup = atMillis;
+        }
+
+        @Override
+        public void cancelWakeup() {
+            wakeup = Long.MAX_VALUE;
+        }
+
+        @Override
+        public void acquireWakeLock(long timeoutMs) {
+        }
+
+        @Override
+        public void releaseWakeLock() {
+        }
+
+        @Override
+        public void onTaskError(String name, RuntimeException e) {
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Random random = new Random(42);
+        host = new VirtualHost();
+        scheduler = new TaskScheduler(host);
+        int[] priorities = {
+            TaskScheduler.PRIORITY_LOW, TaskScheduler.PRIORITY_NORMAL, TaskScheduler.PRIORITY_HIGH
+        };
+        for (int i = 0; i < tasks; i++) {
+            long interval = 60_000L * (1 + random.nextInt(60));
+            long flex = interval / (2 + random.nextInt(4));
+            scheduler.scheduleRepeating("task_" + i, priorities[random.nextInt(3)],
+                interval, flex, () -> { });
+        }
+    }
+
+    @Benchmark
+    public long nextWindow() {
+        host.now = host.wakeup;
+        scheduler.onWakeup();
+        return scheduler.getWakeupsAvoided();
+    }
+
+    @Benchmark
+    public int reschedule() {
+        scheduler.schedule("task_0", TaskScheduler.PRIORITY_NORMAL, 30_000L, 10_000L, () -> { });
+        return scheduler.getPendingCount();
+    }
+}
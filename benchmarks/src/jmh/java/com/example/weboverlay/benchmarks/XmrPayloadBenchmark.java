@@ -0,0 +1,75 @@
+package com.example.weboverlay.benchmarks;
+
+import com.example.weboverlay.XmrMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of CMS push payloads, over a mix of valid, expired and
+ * malformed commands as a busy relay would deliver them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class XmrPayloadBenchmark {
+    private static final int PAYLOADS = 10_000;
+
+    private String[] payloads;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        String[] actions = {
+            XmrMessage.ACTION_COLLECT_NOW,
+            XmrMessage.ACTION_CHANGE_LAYOUT,
+            XmrMessage.ACTION_SCREENSHOT,
+            "licenceCheck"
+        };
+        long now = 1_700_000_000_000L;
+        // createdDt goes over the wire as ISO-8601, as the CMS sends it
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.US);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+        payloads = new String[PAYLOADS];
+        for (int i = 0; i < PAYLOADS; i++) {
+            if (i % 50 == 0) {
+                payloads[i] = "{\"action\":";
+                continue;
+            }
+            String action = actions[random.nextInt(actions.length)];
+            StringBuilder sb = new StringBuilder()
+                .append("{\"action\":\"").append(action).append('"')
+                .append(",\"createdDt\":\"")
+                .append(iso.format(new Date(now - random.nextInt(120_000)))).append('"')
+                .append(",\"ttl\":").append(60);
+            if (XmrMessage.ACTION_CHANGE_LAYOUT.equals(action)) {
+                sb.append(",\"layoutId\":\"").append(random.nextInt(5000)).append('"');
+            }
+            payloads[i] = sb.append('}').toString();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAYLOADS)
+    public void parse(Blackhole blackhole) {
+        long now = 1_700_000_000_000L;
+        for (String payload : payloads) {
+            XmrMessage message = XmrMessage.parse(payload);
+            blackhole.consume(message != null && !message.isExpired(now));
+        }
+    }
+}